@@ -0,0 +1,84 @@
+package sandbox.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.Base64;
+
+/**
+ * Base64 encode/decode of byte arrays
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base64Benchmark {
+	@Param({ "16", "1024", "65536" })
+	public int size;
+
+	private byte[] data;
+	private byte[] encoded;
+	private byte[] encodeOut;
+	private byte[] decodeOut;
+	private ByteBuffer directIn;
+	private ByteBuffer directOut;
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		new Random(42).nextBytes(data);
+		encoded = Base64.encode(data, false);
+		encodeOut = new byte[Base64.encodedLength(size, false)];
+		decodeOut = new byte[size];
+		directIn = ByteBuffer.allocateDirect(size);
+		directIn.put(data).flip();
+		directOut = ByteBuffer.allocateDirect(encodeOut.length);
+	}
+
+	@Benchmark
+	public byte[] encodeStandard() {
+		return Base64.encode(data, false);
+	}
+
+	@Benchmark
+	public byte[] encodeUrlSafe() {
+		return Base64.encode(data, true);
+	}
+
+	@Benchmark
+	public byte[] decode() {
+		return Base64.decode(encoded);
+	}
+
+	@Benchmark
+	public int encodeInto() {
+		return Base64.encode(data, 0, data.length, encodeOut, 0);
+	}
+
+	@Benchmark
+	public int decodeInto() {
+		return Base64.decode(encoded, 0, encoded.length, decodeOut, 0);
+	}
+
+	@Benchmark
+	public int encodeDirect() {
+		directIn.rewind();
+		directOut.clear();
+		return Base64.encode(directIn, directOut, false);
+	}
+}
@@ -0,0 +1,156 @@
+package sandbox.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.ByteArrayBuilder;
+import sandbox.ChunkedByteArrayBuilder;
+import sandbox.DirectByteArrayBuilder;
+
+/**
+ * ByteArrayBuilder (and chunked/direct siblings) append/grow/copy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteArrayBuilderBenchmark {
+	@Param({ "64", "4096", "262144", "33554432" })
+	public int size;
+
+	private byte[] chunk;
+	private String text;
+	private ByteBuffer socketBuffer;
+	private final DirectByteArrayBuilder.Pool directPool = new DirectByteArrayBuilder.Pool(4, 4096, 64 << 20);
+	private final ByteArrayBuilder.Pool pool = new ByteArrayBuilder.Pool(4, ByteArrayBuilder.INITIAL_SIZE, 1 << 20);
+
+	@Setup
+	public void setup() {
+		chunk = new byte[64];
+		new Random(42).nextBytes(chunk);
+		final StringBuilder sb = new StringBuilder(size);
+		for (int i = 0; i < size; i++) {
+			sb.append((char) ('a' + (i % 26)));
+		}
+		text = sb.toString();
+		socketBuffer = ByteBuffer.allocateDirect(size);
+	}
+
+	@Benchmark
+	public ByteArrayBuilder appendBytes() {
+		final ByteArrayBuilder bab = new ByteArrayBuilder();
+		for (int i = 0; i < size; i++) {
+			bab.append(chunk[i & 63]);
+		}
+		return bab;
+	}
+
+	@Benchmark
+	public ByteArrayBuilder appendChunks() {
+		final ByteArrayBuilder bab = new ByteArrayBuilder();
+		for (int i = 0; i < size; i += chunk.length) {
+			bab.append(chunk, 0, Math.min(chunk.length, size - i));
+		}
+		return bab;
+	}
+
+	@Benchmark
+	public byte[] appendChunksToByteArray() {
+		return appendChunks().toByteArray();
+	}
+
+	@Benchmark
+	public ChunkedByteArrayBuilder chunkedAppendChunks() {
+		final ChunkedByteArrayBuilder cb = new ChunkedByteArrayBuilder();
+		for (int i = 0; i < size; i += chunk.length) {
+			cb.append(chunk, 0, Math.min(chunk.length, size - i));
+		}
+		return cb;
+	}
+
+	@Benchmark
+	public int pooledAppendChunks() {
+		final ByteArrayBuilder bab = pool.acquire();
+		for (int i = 0; i < size; i += chunk.length) {
+			bab.append(chunk, 0, Math.min(chunk.length, size - i));
+		}
+		final int len = bab.length();
+		bab.release();
+		return len;
+	}
+
+	@Benchmark
+	public int appendPrimitives() {
+		final ByteArrayBuilder bab = pool.acquire();
+		for (int i = 0; i < size; i += 16) {
+			bab.appendIntBE(i).appendLongLE(i).appendVarInt(i).appendZigZag(-i);
+		}
+		final int len = bab.length();
+		bab.release();
+		return len;
+	}
+
+	@Benchmark
+	public int appendUtf8() {
+		final ByteArrayBuilder bab = pool.acquire();
+		bab.appendUtf8(text);
+		final int len = bab.length();
+		bab.release();
+		return len;
+	}
+
+	@Benchmark
+	public int appendGetBytes() {
+		final ByteArrayBuilder bab = pool.acquire();
+		bab.append(text.getBytes(StandardCharsets.UTF_8));
+		final int len = bab.length();
+		bab.release();
+		return len;
+	}
+
+	/**
+	 * Build in pooled heap builder, then copy into a direct buffer (for socket write)
+	 */
+	@Benchmark
+	public int heapThenDirectCopy() {
+		final ByteArrayBuilder bab = pool.acquire();
+		for (int i = 0; i < size; i += chunk.length) {
+			bab.append(chunk, 0, Math.min(chunk.length, size - i));
+		}
+		socketBuffer.clear();
+		socketBuffer.put(bab.getInternalBuffer(), 0, bab.length()).flip();
+		final int len = socketBuffer.remaining();
+		bab.release();
+		return len;
+	}
+
+	/**
+	 * Build in pooled direct builder, zero-copy view (for socket write)
+	 */
+	@Benchmark
+	public int directPooled() {
+		final DirectByteArrayBuilder dab = directPool.acquire();
+		for (int i = 0; i < size; i += chunk.length) {
+			dab.append(chunk, 0, Math.min(chunk.length, size - i));
+		}
+		final int len = dab.asReadOnlyByteBuffer().remaining();
+		dab.release();
+		return len;
+	}
+}
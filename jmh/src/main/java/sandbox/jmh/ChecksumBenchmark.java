@@ -0,0 +1,73 @@
+package sandbox.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.CRC;
+import sandbox.CRC32;
+import sandbox.CRC32C;
+import sandbox.CRC64;
+import sandbox.CRC8;
+
+/**
+ * Checksum throughput (bulk update over byte array)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+	@Param({ "CRC8", "CRC32", "CRC32C", "CRC64", "CRC-16/IBM-3740", "CRC-64/XZ" })
+	public String algorithm;
+
+	@Param({ "64", "4096", "1048576" })
+	public int size;
+
+	private Checksum checksum;
+	private byte[] data;
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		new Random(42).nextBytes(data);
+		checksum = newChecksum(algorithm);
+	}
+
+	static Checksum newChecksum(final String alg) {
+		if ("CRC8".equals(alg))
+			return new CRC8();
+		if ("CRC32".equals(alg))
+			return new CRC32();
+		if ("CRC32C".equals(alg))
+			return new CRC32C();
+		if ("CRC64".equals(alg))
+			return new CRC64();
+		if ("CRC-16/IBM-3740".equals(alg))
+			return new CRC(CRC.CRC16_IBM_3740);
+		if ("CRC-64/XZ".equals(alg))
+			return new CRC(CRC.CRC64_XZ);
+		throw new IllegalArgumentException(alg);
+	}
+
+	@Benchmark
+	public long update() {
+		checksum.reset();
+		checksum.update(data, 0, data.length);
+		return checksum.getValue();
+	}
+}
@@ -0,0 +1,54 @@
+package sandbox.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.EncoderMSISDN;
+
+/**
+ * MSISDN encode/decode
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncoderMSISDNBenchmark {
+	@Param({ "677123456", "+34655123456", "+0035688123456" })
+	public String msisdn;
+
+	private long encoded;
+	private final char[] buf = new char[EncoderMSISDN.MAX_CHARS];
+
+	@Setup
+	public void setup() {
+		encoded = EncoderMSISDN.toLong(msisdn);
+	}
+
+	@Benchmark
+	public long toLong() {
+		return EncoderMSISDN.toLong(msisdn);
+	}
+
+	@Benchmark
+	public String fromLong() {
+		return EncoderMSISDN.fromLong(encoded);
+	}
+
+	@Benchmark
+	public int fromLongInto() {
+		return EncoderMSISDN.fromLong(encoded, buf, 0);
+	}
+}
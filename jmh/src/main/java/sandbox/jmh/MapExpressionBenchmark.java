@@ -0,0 +1,159 @@
+package sandbox.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.MapExpression;
+import sandbox.MapExpression.InvalidExpression;
+import sandbox.MapExpressionRegistry;
+
+/**
+ * MapExpression parse+eval (cached / uncached parse) vs eval vs compiled template render, and config reload
+ * (one key changed) of many expressions: eval all vs registry (re-render only dependents), and notification
+ * template (16 fields) rendered with map mapper vs bound to vocabulary (slots)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapExpressionBenchmark {
+	static final String EXPRESSION = "Hi ${user.name}, you are ${user.state}!! ${static}";
+	static final int EXPRESSIONS = 1000;
+	static final String LAYERED = "url=${db.url.${env}} timeout=${db.timeout:-${default.timeout:-30}} ${db.url.${env}}";
+
+	private Map<String, String> map;
+	private MapExpression expression;
+	private MapExpression layered;
+	private MapExpression.Template template;
+	private MapExpression.Mapper mapper;
+	private final StringBuilder sb = new StringBuilder();
+	private MapExpression.ObservableMapMapper observable;
+	private MapExpression[] expressions;
+	private MapExpressionRegistry.Binding[] bindings;
+	private int changes = 0;
+	private MapExpression.Template notification;
+	private MapExpression.Mapper notificationMapper;
+	private MapExpression.BoundTemplate notificationBound;
+	private String[] notificationValues;
+
+	@Setup
+	public void setup() throws InvalidExpression {
+		System.setProperty("user.state", "lucky");
+		map = new HashMap<String, String>();
+		map.put("static", "ouh yeah!");
+		expression = new MapExpression(EXPRESSION, map, true);
+		map.put("env", "prod");
+		map.put("db.url.prod", "jdbc://${db.host:-localhost}:${db.port:-5432}/${app}");
+		map.put("app", "${user.name}-app");
+		layered = new MapExpression(LAYERED, map, true);
+		template = MapExpression.compile(EXPRESSION);
+		mapper = new MapExpression.MultiMapper().add(new MapExpression.MapMapper(map))
+				.add(MapExpression.SystemPropertyMapper.getInstance());
+		// Notification template with fixed fields
+		final StringBuilder n = new StringBuilder();
+		final Map<String, String> fields = new HashMap<String, String>();
+		for (int i = 0; i < 16; i++) {
+			n.append("field").append(i).append("=${notification.field").append(i).append("} ");
+			fields.put("notification.field" + i, "value" + i);
+		}
+		notification = MapExpression.compile(n.toString());
+		notificationMapper = new MapExpression.MapMapper(fields);
+		final MapExpression.Vocabulary vocabulary = MapExpression.Vocabulary.of(notification);
+		notificationBound = notification.bind(vocabulary);
+		notificationValues = vocabulary.values(notificationMapper);
+		// Many expressions, each with its own key
+		observable = new MapExpression.ObservableMapMapper(new HashMap<String, String>());
+		final MapExpression.Mapper reloadMapper = new MapExpression.MultiMapper().add(observable)
+				.add(MapExpression.SystemPropertyMapper.getInstance());
+		final MapExpressionRegistry registry = new MapExpressionRegistry(reloadMapper);
+		observable.addListener(registry);
+		expressions = new MapExpression[EXPRESSIONS];
+		bindings = new MapExpressionRegistry.Binding[EXPRESSIONS];
+		for (int i = 0; i < EXPRESSIONS; i++) {
+			observable.put("key" + i, "value" + i);
+			final String expr = "Hi ${user.name}, key" + i + " is ${key" + i + "}";
+			expressions[i] = new MapExpression(expr, null, reloadMapper, true);
+			bindings[i] = registry.register(expr);
+		}
+	}
+
+	@Benchmark
+	public String parseEval() throws InvalidExpression {
+		return new MapExpression(EXPRESSION, map, true).get();
+	}
+
+	@Benchmark
+	public String parseEvalUncached() throws InvalidExpression {
+		// subclasses bypass the global parse cache
+		return new MapExpression(EXPRESSION, map, true) {
+		}.get();
+	}
+
+	@Benchmark
+	public String eval() throws InvalidExpression {
+		return expression.eval().get();
+	}
+
+	@Benchmark
+	public String evalLayered() throws InvalidExpression {
+		// nested, defaults and recursive values (memoized per eval)
+		return layered.eval().get();
+	}
+
+	@Benchmark
+	public String render() {
+		return template.render(mapper);
+	}
+
+	@Benchmark
+	public StringBuilder renderInto() {
+		sb.setLength(0);
+		return template.render(mapper, sb);
+	}
+
+	@Benchmark
+	public StringBuilder notificationMapper() {
+		sb.setLength(0);
+		return notification.render(notificationMapper, sb);
+	}
+
+	@Benchmark
+	public StringBuilder notificationBound() {
+		sb.setLength(0);
+		return notificationBound.render(notificationValues, sb);
+	}
+
+	@Benchmark
+	public int reloadEvalAll() throws InvalidExpression {
+		observable.put("key" + (changes++ % EXPRESSIONS), "changed" + changes);
+		int len = 0;
+		for (final MapExpression e : expressions) {
+			len += e.eval().get().length();
+		}
+		return len;
+	}
+
+	@Benchmark
+	public int reloadRegistry() {
+		observable.put("key" + (changes++ % EXPRESSIONS), "changed" + changes);
+		int len = 0;
+		for (final MapExpressionRegistry.Binding b : bindings) {
+			len += b.get().length();
+		}
+		return len;
+	}
+}
@@ -0,0 +1,110 @@
+package sandbox.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.MsisdnIndex;
+import sandbox.MsisdnSet;
+
+/**
+ * MSISDN membership: Eytzinger MsisdnSet vs mapped MsisdnIndex vs sorted array binary search vs
+ * HashSet&lt;Long&gt;
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class MsisdnSetBenchmark {
+	private static final int PROBES = 1024;
+
+	@Param({ "10000", "10000000" })
+	public int size;
+
+	private MsisdnSet set;
+	private long[] sorted;
+	private HashSet<Long> hashSet;
+	private MsisdnIndex index;
+	private long[] probes;
+
+	@Setup
+	public void setup() throws IOException {
+		final Random r = new Random(42);
+		final long[] values = new long[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = 134600000000L + r.nextInt(100000000);
+		}
+		set = new MsisdnSet(values);
+		sorted = set.toSortedArray();
+		final File file = File.createTempFile("msisdn", ".idx");
+		file.deleteOnExit();
+		MsisdnIndex.write(file.toPath(), sorted);
+		index = MsisdnIndex.open(file.toPath());
+		hashSet = new HashSet<Long>();
+		for (final long v : sorted) {
+			hashSet.add(v);
+		}
+		// Half hits, half (probable) misses
+		probes = new long[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = (((i & 1) == 0) ? values[r.nextInt(size)] : (134600000000L + r.nextInt(100000000)));
+		}
+	}
+
+	@Benchmark
+	public int eytzinger() {
+		int found = 0;
+		for (final long p : probes) {
+			if (set.contains(p))
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int mappedIndex() {
+		int found = 0;
+		for (final long p : probes) {
+			if (index.contains(p))
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int binarySearch() {
+		int found = 0;
+		for (final long p : probes) {
+			if (Arrays.binarySearch(sorted, p) >= 0)
+				found++;
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int hashSet() {
+		int found = 0;
+		for (final long p : probes) {
+			if (hashSet.contains(p))
+				found++;
+		}
+		return found;
+	}
+}
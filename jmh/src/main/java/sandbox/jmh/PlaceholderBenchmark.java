@@ -0,0 +1,99 @@
+package sandbox.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.PlaceholderMemoryInputStream;
+import sandbox.PlaceholderMemoryInputStream.PlaceholderMapper;
+import sandbox.PlaceholderPushbackInputStream;
+
+/**
+ * Placeholder substitution of a descriptor (XML): String rewrite vs byte scanner (gather list) vs streaming
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderBenchmark {
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Param({ "4096", "1048576" })
+	public int size;
+
+	private byte[] content;
+	private PlaceholderMapper mapper;
+	private PlaceholderPushbackInputStream.PlaceholderMapper streamMapper;
+	private final byte[] sink = new byte[8192];
+
+	@Setup
+	public void setup() {
+		final Properties props = new Properties();
+		for (int i = 0; i < 16; i++) {
+			props.setProperty("param" + i, "value-" + i);
+		}
+		mapper = new PlaceholderMapper() {
+			@Override
+			public String mapPlaceHolder(final String name) {
+				return props.getProperty(name);
+			}
+		};
+		streamMapper = new PlaceholderPushbackInputStream.PlaceholderMapper() {
+			@Override
+			public String mapPlaceHolder(final String name) {
+				return props.getProperty(name);
+			}
+		};
+		final StringBuilder sb = new StringBuilder(size + 128);
+		sb.append("<!-- ENABLE-STREAM-PLACEHOLDER -->\n<servlet>\n");
+		for (int i = 0; sb.length() < size; i++) {
+			sb.append("  <init-param><param-name>p").append(i).append("</param-name><param-value>${param")
+					.append(i & 15).append("}</param-value></init-param>\n");
+		}
+		sb.append("</servlet>\n");
+		content = sb.toString().getBytes(UTF8);
+	}
+
+	private long drain(final InputStream in) throws IOException {
+		long total = 0;
+		int read;
+		while ((read = in.read(sink)) != -1) {
+			total += read;
+		}
+		return total;
+	}
+
+	@Benchmark
+	public long memoryString() throws IOException {
+		// subclasses use the String based rewrite
+		return drain(new PlaceholderMemoryInputStream(new ByteArrayInputStream(content), mapper, true, UTF8) {
+		});
+	}
+
+	@Benchmark
+	public long memoryBytes() throws IOException {
+		return drain(new PlaceholderMemoryInputStream(new ByteArrayInputStream(content), mapper, true, UTF8));
+	}
+
+	@Benchmark
+	public long pushbackStream() throws IOException {
+		return drain(new PlaceholderPushbackInputStream(new ByteArrayInputStream(content), streamMapper, true, UTF8));
+	}
+}
@@ -0,0 +1,108 @@
+package sandbox.jmh;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.SimpleHex;
+
+/**
+ * SimpleHex encode/decode
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleHexBenchmark {
+	@Param({ "16", "32", "4096" })
+	public int size;
+
+	private byte[] data;
+	private String hex;
+	private long number;
+	private char[] charOut;
+	private byte[] byteOut;
+	private byte[] decodeOut;
+	private StringBuilder sb;
+	private ByteBuffer directIn;
+	private ByteBuffer directOut;
+
+	@Setup
+	public void setup() {
+		final Random r = new Random(42);
+		data = new byte[size];
+		r.nextBytes(data);
+		hex = SimpleHex.bytesAsHex(data);
+		number = r.nextLong();
+		charOut = new char[size << 1];
+		byteOut = new byte[size << 1];
+		decodeOut = new byte[size];
+		sb = new StringBuilder(size << 1);
+		directIn = ByteBuffer.allocateDirect(size);
+		directIn.put(data).flip();
+		directOut = ByteBuffer.allocateDirect(size << 1);
+	}
+
+	@Benchmark
+	public String toHex() {
+		return SimpleHex.toHex(data, 0, data.length, false);
+	}
+
+	@Benchmark
+	public String bytesAsHex() {
+		return SimpleHex.bytesAsHex(data);
+	}
+
+	@Benchmark
+	public String longAsHex() {
+		return SimpleHex.longAsHex(number);
+	}
+
+	@Benchmark
+	public byte[] fromHex() throws ParseException {
+		return SimpleHex.fromHex(hex);
+	}
+
+	@Benchmark
+	public int toHexChars() {
+		return SimpleHex.toHex(data, 0, data.length, charOut, 0, false);
+	}
+
+	@Benchmark
+	public int toHexBytes() {
+		return SimpleHex.toHex(data, 0, data.length, byteOut, 0, false);
+	}
+
+	@Benchmark
+	public StringBuilder appendHex() {
+		sb.setLength(0);
+		return SimpleHex.appendHex(sb, data, 0, data.length, false);
+	}
+
+	@Benchmark
+	public int toHexDirect() {
+		directIn.rewind();
+		directOut.clear();
+		return SimpleHex.toHex(directIn, directOut, false);
+	}
+
+	@Benchmark
+	public int fromHexInto() throws ParseException {
+		return SimpleHex.fromHex(hex, 0, hex.length(), decodeOut, 0);
+	}
+}
@@ -0,0 +1,50 @@
+package sandbox.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sandbox.WallClock;
+
+/**
+ * WallClock vs System.currentTimeMillis()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WallClockBenchmark {
+	private WallClock wallClock;
+
+	@Setup
+	public void setup() {
+		wallClock = WallClock.getInstance();
+	}
+
+	@TearDown
+	public void tearDown() {
+		wallClock.destroy();
+	}
+
+	@Benchmark
+	public long systemClock() {
+		return System.currentTimeMillis();
+	}
+
+	@Benchmark
+	public long wallClock() {
+		return wallClock.currentTimeMillis();
+	}
+}
@@ -12,7 +12,10 @@
  * limitations under the License.
  *
  */
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 //import javax.xml.bind.DatatypeConverter;
 
@@ -37,6 +40,12 @@ public class Base64 {
 	private static final byte[] ENCODE_TABLE_STD;
 	private static final byte PADDING_CHAR_STD = '=';
 
+	/**
+	 * MIME line length and separator as specified in RFC-2045 page 25.
+	 */
+	public static final int MIME_LINE_LENGTH = 76;
+	private static final byte[] MIME_LINE_SEPARATOR = { '\r', '\n' };
+
 	/**
 	 * Base64 Alphabet as specified in RFC-4648 page 7 (URL-SAFE).
 	 */
@@ -47,6 +56,13 @@ public class Base64 {
 	 */
 	private static final byte[] DECODE_TABLE = new byte[256];
 
+	/**
+	 * Table for reverse Base64 encoding with validation (streaming decoder): -1 invalid, -2 whitespace
+	 */
+	private static final byte[] DECODE_TABLE_STRICT = new byte[256];
+	private static final byte DECODE_INVALID = -1;
+	private static final byte DECODE_WHITESPACE = -2;
+
 	static {
 		final String BASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
 		final String EXTRA_STD = "+/";
@@ -67,24 +83,160 @@ public class Base64 {
 			final char c = EXTRA_URL_SAFE.charAt(i);
 			DECODE_TABLE[c] = (byte) (i + BASE.length());
 		}
+		// Init strict decoding Table
+		Arrays.fill(DECODE_TABLE_STRICT, DECODE_INVALID);
+		for (final byte c : ENCODE_TABLE_STD) {
+			DECODE_TABLE_STRICT[c] = DECODE_TABLE[c];
+		}
+		for (final byte c : ENCODE_TABLE_URL_SAFE) {
+			DECODE_TABLE_STRICT[c] = DECODE_TABLE[c];
+		}
+		DECODE_TABLE_STRICT[' '] = DECODE_WHITESPACE;
+		DECODE_TABLE_STRICT['\t'] = DECODE_WHITESPACE;
+		DECODE_TABLE_STRICT['\r'] = DECODE_WHITESPACE;
+		DECODE_TABLE_STRICT['\n'] = DECODE_WHITESPACE;
+	}
+
+	/**
+	 * Encode full blocks (no bounds checks, no padding), 24 input bytes per iteration (SWAR: 48 bits in a
+	 * long, 8 output chars).
+	 * 
+	 * @param in input
+	 * @param i offset in input
+	 * @param end end in input (i + multiple of 3)
+	 * @param out output
+	 * @param j offset in output
+	 * @param table encoding table
+	 * @return offset in output after last char written
+	 */
+	private static final int encodeBlocks(final byte[] in, int i, final int end, final byte[] out, int j,
+			final byte[] table) {
+		while (i + 24 <= end) {
+			encode48(in, i, out, j, table);
+			encode48(in, i + 6, out, j + 8, table);
+			encode48(in, i + 12, out, j + 16, table);
+			encode48(in, i + 18, out, j + 24, table);
+			i += 24;
+			j += 32;
+		}
+		while (i + 6 <= end) {
+			encode48(in, i, out, j, table);
+			i += 6;
+			j += 8;
+		}
+		if (i < end) { // 3 bytes
+			final int block = ((in[i] & 0xFF) << 16) | ((in[i + 1] & 0xFF) << 8) | (in[i + 2] & 0xFF);
+			out[j] = table[block >>> 18];
+			out[j + 1] = table[(block >>> 12) & 0x3F];
+			out[j + 2] = table[(block >>> 6) & 0x3F];
+			out[j + 3] = table[block & 0x3F];
+			j += 4;
+		}
+		return j;
 	}
 
-	private static final int getByte(final byte[] input, final int offset) {
-		return ((offset < input.length) ? (input[offset] & 0xFF) : 0);
+	private static final void encode48(final byte[] in, final int i, final byte[] out, final int j,
+			final byte[] table) {
+		final long block = ((long) (in[i] & 0xFF) << 40) | ((long) (in[i + 1] & 0xFF) << 32) //
+				| ((long) (in[i + 2] & 0xFF) << 24) | ((in[i + 3] & 0xFF) << 16) //
+				| ((in[i + 4] & 0xFF) << 8) | (in[i + 5] & 0xFF);
+		out[j] = table[(int) (block >>> 42)];
+		out[j + 1] = table[(int) (block >>> 36) & 0x3F];
+		out[j + 2] = table[(int) (block >>> 30) & 0x3F];
+		out[j + 3] = table[(int) (block >>> 24) & 0x3F];
+		out[j + 4] = table[(int) (block >>> 18) & 0x3F];
+		out[j + 5] = table[(int) (block >>> 12) & 0x3F];
+		out[j + 6] = table[(int) (block >>> 6) & 0x3F];
+		out[j + 7] = table[(int) block & 0x3F];
 	}
 
-	private static final void setByte(final byte[] output, final int offset, final int length, final byte b) {
-		if (offset < length) {
-			output[offset] = b;
+	/**
+	 * Decode full blocks (no bounds checks), 32 input chars per iteration (SWAR: 8 chars in 48 bits of a
+	 * long, 6 output bytes).
+	 * 
+	 * @param in input
+	 * @param i offset in input
+	 * @param end end in input (i + multiple of 4)
+	 * @param out output
+	 * @param j offset in output
+	 * @return offset in output after last byte written
+	 */
+	private static final int decodeBlocks(final byte[] in, int i, final int end, final byte[] out, int j) {
+		while (i + 32 <= end) {
+			decode48(in, i, out, j);
+			decode48(in, i + 8, out, j + 6);
+			decode48(in, i + 16, out, j + 12);
+			decode48(in, i + 24, out, j + 18);
+			i += 32;
+			j += 24;
+		}
+		while (i + 8 <= end) {
+			decode48(in, i, out, j);
+			i += 8;
+			j += 6;
+		}
+		if (i < end) { // 4 chars
+			final byte[] t = DECODE_TABLE;
+			final int block = (t[in[i] & 0xFF] << 18) | (t[in[i + 1] & 0xFF] << 12) //
+					| (t[in[i + 2] & 0xFF] << 6) | t[in[i + 3] & 0xFF];
+			out[j] = (byte) (block >>> 16);
+			out[j + 1] = (byte) (block >>> 8);
+			out[j + 2] = (byte) block;
+			j += 3;
 		}
+		return j;
+	}
+
+	private static final void decode48(final byte[] in, final int i, final byte[] out, final int j) {
+		final byte[] t = DECODE_TABLE;
+		final long block = ((long) t[in[i] & 0xFF] << 42) | ((long) t[in[i + 1] & 0xFF] << 36) //
+				| ((long) t[in[i + 2] & 0xFF] << 30) | ((long) t[in[i + 3] & 0xFF] << 24) //
+				| (t[in[i + 4] & 0xFF] << 18) | (t[in[i + 5] & 0xFF] << 12) //
+				| (t[in[i + 6] & 0xFF] << 6) | t[in[i + 7] & 0xFF];
+		out[j] = (byte) (block >>> 40);
+		out[j + 1] = (byte) (block >>> 32);
+		out[j + 2] = (byte) (block >>> 24);
+		out[j + 3] = (byte) (block >>> 16);
+		out[j + 4] = (byte) (block >>> 8);
+		out[j + 5] = (byte) block;
+	}
+
+	/**
+	 * Returns exact length of Base64 encoding (with padding for standard encoding). Standard encoding of an
+	 * input whose length is a multiple of 3 (or empty) is followed by four padding chars, as it always did
+	 * (decoders ignore it).
+	 * 
+	 * @param len input length
+	 * @param urlSafeEncoding
+	 * @return
+	 */
+	public static int encodedLength(final int len, final boolean urlSafeEncoding) {
+		final long chars = (urlSafeEncoding ? ((len * 4L + 2) / 3) : (((len / 3) + 1L) * 4));
+		if (chars > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Input too large: " + len);
+		return (int) chars;
 	}
 
-	private static final int roundOut(final int len, final int round) {
-		return (len / round) + ((len % round) > 0 ? 1 : 0);
+	/**
+	 * Returns exact length of decoded Base64 input
+	 * 
+	 * @param src input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return
+	 */
+	public static int decodedLength(final byte[] src, final int off, final int len) {
+		return (int) ((long) findEnd(src, off, len) * BITS_PER_B64_BYTE / 8);
 	}
 
-	private static final int paddingOut(final int len, final int pad) {
-		return -((len % pad) - pad);
+	/**
+	 * Returns exact length of decoded Base64 input (from position to limit)
+	 * 
+	 * @param src input
+	 * @return
+	 */
+	public static int decodedLength(final ByteBuffer src) {
+		return (int) ((long) findEnd(src) * BITS_PER_B64_BYTE / 8);
 	}
 
 	/**
@@ -95,28 +247,126 @@ public class Base64 {
 	 * @return
 	 */
 	public static byte[] encode(final byte[] input, final boolean urlSafeEncoding) {
-		final int lenInput = input.length;
-		final int lenOutput = roundOut(lenInput * 8, BITS_PER_B64_BYTE);
-		final int padding = (urlSafeEncoding ? 0 : paddingOut(lenOutput, BYTES_PER_BLOCK_OF_6_BITS));
-		final byte[] output = new byte[lenOutput + padding];
+		final byte[] output = new byte[encodedLength(input.length, urlSafeEncoding)];
+		encode(input, 0, input.length, output, 0, urlSafeEncoding);
+		return output;
+	}
+
+	/**
+	 * Encode to Base64 (standard, with padding) into caller-supplied buffer (no allocation)
+	 * 
+	 * @param src input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @param dst output (with room for {@link #encodedLength(int, boolean)} bytes)
+	 * @param dstOff offset in output
+	 * @return number of bytes written
+	 */
+	public static int encode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+		return encode(src, off, len, dst, dstOff, false);
+	}
+
+	/**
+	 * Encode to Base64 into caller-supplied buffer (no allocation)
+	 * 
+	 * @param src input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @param dst output (with room for {@link #encodedLength(int, boolean)} bytes)
+	 * @param dstOff offset in output
+	 * @param urlSafeEncoding
+	 * @return number of bytes written
+	 */
+	public static int encode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff,
+			final boolean urlSafeEncoding) {
+		final int lenOutput = encodedLength(len, urlSafeEncoding);
+		if ((off < 0) || (len < 0) || (off > src.length - len) || (dstOff < 0)
+				|| (dstOff > dst.length - lenOutput))
+			throw new ArrayIndexOutOfBoundsException();
 		final byte[] transTable = (urlSafeEncoding ? ENCODE_TABLE_URL_SAFE : ENCODE_TABLE_STD);
-		for (int i = 0, j = 0; i < lenInput; i += BYTES_PER_BLOCK_OF_8_BITS) {
-			final int b1 = getByte(input, i);
-			final int b2 = getByte(input, i + 1);
-			final int b3 = getByte(input, i + 2);
-			final long block = (b1 << 16 | b2 << 8 | b3) & 0x00FFFFFF;
-			setByte(output, j++, lenOutput, transTable[(int) ((block >> 18) & 0x3F)]);
-			setByte(output, j++, lenOutput, transTable[(int) ((block >> 12) & 0x3F)]);
-			setByte(output, j++, lenOutput, transTable[(int) ((block >> 6) & 0x3F)]);
-			setByte(output, j++, lenOutput, transTable[(int) (block & 0x3F)]);
-		}
-		if (padding > 0) {
-			int j = output.length - padding;
-			while (j < output.length) {
-				output[j++] = (byte) PADDING_CHAR_STD;
+		// Fast path for full blocks, tail (1 or 2 bytes) with padding
+		final int lenFull = len - (len % BYTES_PER_BLOCK_OF_8_BITS);
+		int j = encodeBlocks(src, off, off + lenFull, dst, dstOff, transTable);
+		final int tail = (len - lenFull);
+		if (tail > 0) {
+			final int b1 = src[off + lenFull] & 0xFF;
+			final int b2 = ((tail > 1) ? (src[off + lenFull + 1] & 0xFF) : 0);
+			j = encodeTail(b1, b2, tail, dst, j, transTable, !urlSafeEncoding);
+		} else if (!urlSafeEncoding) {
+			Arrays.fill(dst, j, j + 4, PADDING_CHAR_STD);
+		}
+		return lenOutput;
+	}
+
+	/**
+	 * Encode to Base64 from position to limit of src, into dst (no allocation). Upon return, src position
+	 * will be equal to its limit and dst position is advanced by the number of bytes written.
+	 * 
+	 * @param src input (heap or direct)
+	 * @param dst output (heap or direct)
+	 * @param urlSafeEncoding
+	 * @return number of bytes written
+	 * @throws BufferOverflowException if dst has not room for {@link #encodedLength(int, boolean)} bytes
+	 */
+	public static int encode(final ByteBuffer src, final ByteBuffer dst, final boolean urlSafeEncoding) {
+		final int len = src.remaining();
+		final int lenOutput = encodedLength(len, urlSafeEncoding);
+		if (dst.remaining() < lenOutput)
+			throw new BufferOverflowException();
+		if (src.hasArray() && dst.hasArray()) {
+			encode(src.array(), src.arrayOffset() + src.position(), len, //
+					dst.array(), dst.arrayOffset() + dst.position(), urlSafeEncoding);
+		} else {
+			final byte[] transTable = (urlSafeEncoding ? ENCODE_TABLE_URL_SAFE : ENCODE_TABLE_STD);
+			int i = src.position();
+			int j = dst.position();
+			final int end = i + len - (len % BYTES_PER_BLOCK_OF_8_BITS);
+			for (; i < end; i += BYTES_PER_BLOCK_OF_8_BITS) {
+				final int block = ((src.get(i) & 0xFF) << 16) | ((src.get(i + 1) & 0xFF) << 8)
+						| (src.get(i + 2) & 0xFF);
+				dst.put(j++, transTable[block >>> 18]);
+				dst.put(j++, transTable[(block >>> 12) & 0x3F]);
+				dst.put(j++, transTable[(block >>> 6) & 0x3F]);
+				dst.put(j++, transTable[block & 0x3F]);
+			}
+			final int tail = (src.limit() - i);
+			if (tail > 0) {
+				final int b1 = src.get(i) & 0xFF;
+				final int b2 = ((tail > 1) ? (src.get(i + 1) & 0xFF) : 0);
+				final int block = (b1 << 16) | (b2 << 8);
+				dst.put(j++, transTable[block >>> 18]);
+				dst.put(j++, transTable[(block >>> 12) & 0x3F]);
+				if (tail > 1)
+					dst.put(j++, transTable[(block >>> 6) & 0x3F]);
+				if (!urlSafeEncoding) {
+					for (int k = tail; k < BYTES_PER_BLOCK_OF_8_BITS; k++) {
+						dst.put(j++, PADDING_CHAR_STD);
+					}
+				}
+			} else if (!urlSafeEncoding) {
+				for (int k = 0; k < 4; k++) {
+					dst.put(j++, PADDING_CHAR_STD);
+				}
 			}
 		}
-		return output;
+		src.position(src.limit());
+		dst.position(dst.position() + lenOutput);
+		return lenOutput;
+	}
+
+	private static final int encodeTail(final int b1, final int b2, final int tail, final byte[] out, int j,
+			final byte[] table, final boolean padding) {
+		final int block = (b1 << 16) | (b2 << 8);
+		out[j++] = table[block >>> 18];
+		out[j++] = table[(block >>> 12) & 0x3F];
+		if (tail > 1)
+			out[j++] = table[(block >>> 6) & 0x3F];
+		if (padding) {
+			for (int k = tail; k < BYTES_PER_BLOCK_OF_8_BITS; k++) {
+				out[j++] = PADDING_CHAR_STD;
+			}
+		}
+		return j;
 	}
 
 	/**
@@ -137,26 +387,87 @@ public class Base64 {
 	 * @return
 	 */
 	public static byte[] decode(final byte[] input) {
-		final int lenInput = findEnd(input);
-		final int lenOutput = (lenInput * BITS_PER_B64_BYTE / 8);
-		final byte[] output = new byte[lenOutput];
-		final byte[] transTable = DECODE_TABLE;
-		for (int i = 0, j = 0; i < lenInput; i += BYTES_PER_BLOCK_OF_6_BITS) {
-			final int b1 = transTable[getByte(input, i)];
-			final int b2 = transTable[getByte(input, i + 1)];
-			final int b3 = transTable[getByte(input, i + 2)];
-			final int b4 = transTable[getByte(input, i + 3)];
-			final long block = ((b1 << 18) | (b2 << 12) | (b3 << 6) | b4) & 0x00FFFFFF;
-			final byte x1 = (byte) ((block >> 16) & 0xFF);
-			final byte x2 = (byte) ((block >> 8) & 0xFF);
-			final byte x3 = (byte) (block & 0xFF);
-			setByte(output, j++, lenOutput, x1);
-			setByte(output, j++, lenOutput, x2);
-			setByte(output, j++, lenOutput, x3);
-		}
+		final byte[] output = new byte[decodedLength(input, 0, input.length)];
+		decode(input, 0, input.length, output, 0);
 		return output;
 	}
 
+	/**
+	 * Decode from Base64 into caller-supplied buffer (no allocation)
+	 * 
+	 * @param src input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @param dst output (with room for {@link #decodedLength(byte[], int, int)} bytes)
+	 * @param dstOff offset in output
+	 * @return number of bytes written
+	 */
+	public static int decode(final byte[] src, final int off, final int len, final byte[] dst, final int dstOff) {
+		if ((off < 0) || (len < 0) || (off > src.length - len))
+			throw new ArrayIndexOutOfBoundsException();
+		final int lenInput = findEnd(src, off, len);
+		final int lenOutput = (int) ((long) lenInput * BITS_PER_B64_BYTE / 8);
+		if ((dstOff < 0) || (dstOff > dst.length - lenOutput))
+			throw new ArrayIndexOutOfBoundsException();
+		// Fast path for full blocks, tail (2 or 3 chars) without padding
+		final int lenFull = lenInput - (lenInput % BYTES_PER_BLOCK_OF_6_BITS);
+		int j = decodeBlocks(src, off, off + lenFull, dst, dstOff);
+		final int tail = (dstOff + lenOutput - j);
+		if (tail > 0) {
+			final byte[] t = DECODE_TABLE;
+			final int i = off + lenFull;
+			final int block = (t[src[i] & 0xFF] << 18) | (t[src[i + 1] & 0xFF] << 12) //
+					| ((tail > 1) ? (t[src[i + 2] & 0xFF] << 6) : 0);
+			dst[j++] = (byte) (block >>> 16);
+			if (tail > 1)
+				dst[j++] = (byte) (block >>> 8);
+		}
+		return lenOutput;
+	}
+
+	/**
+	 * Decode from Base64 from position to limit of src, into dst (no allocation). Upon return, src position
+	 * will be equal to its limit and dst position is advanced by the number of bytes written.
+	 * 
+	 * @param src input (heap or direct)
+	 * @param dst output (heap or direct)
+	 * @return number of bytes written
+	 * @throws BufferOverflowException if dst has not room for {@link #decodedLength(ByteBuffer)} bytes
+	 */
+	public static int decode(final ByteBuffer src, final ByteBuffer dst) {
+		final int lenInput = findEnd(src);
+		final int lenOutput = (int) ((long) lenInput * BITS_PER_B64_BYTE / 8);
+		if (dst.remaining() < lenOutput)
+			throw new BufferOverflowException();
+		if (src.hasArray() && dst.hasArray()) {
+			decode(src.array(), src.arrayOffset() + src.position(), src.remaining(), //
+					dst.array(), dst.arrayOffset() + dst.position());
+		} else {
+			final byte[] t = DECODE_TABLE;
+			int i = src.position();
+			int j = dst.position();
+			final int end = i + lenInput - (lenInput % BYTES_PER_BLOCK_OF_6_BITS);
+			for (; i < end; i += BYTES_PER_BLOCK_OF_6_BITS) {
+				final int block = (t[src.get(i) & 0xFF] << 18) | (t[src.get(i + 1) & 0xFF] << 12)
+						| (t[src.get(i + 2) & 0xFF] << 6) | t[src.get(i + 3) & 0xFF];
+				dst.put(j++, (byte) (block >>> 16));
+				dst.put(j++, (byte) (block >>> 8));
+				dst.put(j++, (byte) block);
+			}
+			final int tail = (dst.position() + lenOutput - j);
+			if (tail > 0) {
+				final int block = (t[src.get(i) & 0xFF] << 18) | (t[src.get(i + 1) & 0xFF] << 12) //
+						| ((tail > 1) ? (t[src.get(i + 2) & 0xFF] << 6) : 0);
+				dst.put(j++, (byte) (block >>> 16));
+				if (tail > 1)
+					dst.put(j++, (byte) (block >>> 8));
+			}
+		}
+		src.position(src.limit());
+		dst.position(dst.position() + lenOutput);
+		return lenOutput;
+	}
+
 	/**
 	 * Decode from Base64
 	 * 
@@ -167,11 +478,310 @@ public class Base64 {
 		return new String(decode(input.getBytes(charsetISOLatin1)), charsetUTF8);
 	}
 
-	private static final int findEnd(final byte[] input) {
-		int j = input.length;
-		while ((j > 0) && (input[--j] == PADDING_CHAR_STD))
+	/**
+	 * Returns length of input without padding
+	 */
+	private static final int findEnd(final byte[] input, final int off, final int len) {
+		int j = off + len;
+		while ((j > off) && (input[--j] == PADDING_CHAR_STD))
+			;
+		return j + 1 - off;
+	}
+
+	/**
+	 * Returns length of input (from position to limit) without padding
+	 */
+	private static final int findEnd(final ByteBuffer input) {
+		final int off = input.position();
+		int j = input.limit();
+		while ((j > off) && (input.get(--j) == PADDING_CHAR_STD))
 			;
-		return j + 1;
+		return j + 1 - off;
+	}
+
+	/**
+	 * Create incremental encoder (padding only for standard encoding, as {@link #encode(byte[], boolean)})
+	 * 
+	 * @param urlSafeEncoding
+	 * @return
+	 */
+	public static Encoder newEncoder(final boolean urlSafeEncoding) {
+		return new Encoder(urlSafeEncoding, !urlSafeEncoding, 0, null);
+	}
+
+	/**
+	 * Create incremental encoder for MIME (RFC-2045): standard alphabet, padding, lines of 76 chars
+	 * separated by CRLF
+	 * 
+	 * @return
+	 */
+	public static Encoder newMimeEncoder() {
+		return new Encoder(false, true, MIME_LINE_LENGTH, MIME_LINE_SEPARATOR);
+	}
+
+	/**
+	 * Create incremental decoder (standard and URL-safe alphabets, whitespace/line breaks are ignored,
+	 * padding is optional)
+	 * 
+	 * @return
+	 */
+	public static Decoder newDecoder() {
+		return new Decoder();
+	}
+
+	/**
+	 * Incremental Base64 encoder, keeps carry-over state between chunks (like CharsetEncoder).
+	 * 
+	 * <pre>
+	 * Encoder enc = Base64.newEncoder(false);
+	 * byte[] out = new byte[enc.maxEncodedLength(len)];
+	 * int n = enc.encode(in, off, len, out, 0); // repeat for each chunk
+	 * n += enc.finish(out, n); // padding, reset state
+	 * </pre>
+	 * 
+	 * Instances are not safe for use by multiple threads.
+	 */
+	public static final class Encoder {
+		private final byte[] table;
+		private final boolean padding;
+		private final int lineLength;
+		private final byte[] lineSeparator;
+		private final byte[] carry = new byte[BYTES_PER_BLOCK_OF_8_BITS];
+		private int carryLength = 0;
+		private int linePosition = 0;
+
+		/**
+		 * Create encoder
+		 * 
+		 * @param urlSafeEncoding alphabet
+		 * @param padding true to add padding on finish
+		 * @param lineLength max chars per line (multiple of 4), 0 for no line wrapping
+		 * @param lineSeparator (used if lineLength > 0)
+		 */
+		public Encoder(final boolean urlSafeEncoding, final boolean padding, final int lineLength,
+				final byte[] lineSeparator) {
+			if ((lineLength < 0) || ((lineLength % BYTES_PER_BLOCK_OF_6_BITS) != 0))
+				throw new IllegalArgumentException("Invalid lineLength: " + lineLength);
+			this.table = (urlSafeEncoding ? ENCODE_TABLE_URL_SAFE : ENCODE_TABLE_STD);
+			this.padding = padding;
+			this.lineLength = lineLength;
+			this.lineSeparator = ((lineLength > 0) ? lineSeparator.clone() : null);
+		}
+
+		/**
+		 * Returns maximum number of bytes written by next {@link #encode} (or {@link #finish} if len=0)
+		 * 
+		 * @param len input length
+		 * @return
+		 */
+		public int maxEncodedLength(final int len) {
+			final int chars = ((carryLength + len + BYTES_PER_BLOCK_OF_8_BITS - 1) / BYTES_PER_BLOCK_OF_8_BITS)
+					* BYTES_PER_BLOCK_OF_6_BITS;
+			if (lineLength > 0)
+				return chars + ((linePosition + chars) / lineLength) * lineSeparator.length;
+			return chars;
+		}
+
+		/**
+		 * Encode a chunk of input, incomplete block is retained until next call or {@link #finish}
+		 * 
+		 * @param in input
+		 * @param off offset in input
+		 * @param len length of input
+		 * @param out output (with room for {@link #maxEncodedLength(int)} bytes)
+		 * @param outOff offset in output
+		 * @return number of bytes written
+		 */
+		public int encode(final byte[] in, int off, int len, final byte[] out, final int outOff) {
+			int j = outOff;
+			// Complete carry-over block
+			if (carryLength > 0) {
+				while ((carryLength < BYTES_PER_BLOCK_OF_8_BITS) && (len > 0)) {
+					carry[carryLength++] = in[off++];
+					len--;
+				}
+				if (carryLength < BYTES_PER_BLOCK_OF_8_BITS)
+					return 0;
+				j = newLine(out, j);
+				j = encodeBlocks(carry, 0, BYTES_PER_BLOCK_OF_8_BITS, out, j, table);
+				linePosition += BYTES_PER_BLOCK_OF_6_BITS;
+				carryLength = 0;
+			}
+			// Full blocks
+			final int end = off + len - (len % BYTES_PER_BLOCK_OF_8_BITS);
+			if (lineLength == 0) {
+				j = encodeBlocks(in, off, end, out, j, table);
+				off = end;
+			} else {
+				while (off < end) {
+					j = newLine(out, j);
+					final int blocks = Math.min((end - off) / BYTES_PER_BLOCK_OF_8_BITS, //
+							(lineLength - linePosition) / BYTES_PER_BLOCK_OF_6_BITS);
+					final int next = off + (blocks * BYTES_PER_BLOCK_OF_8_BITS);
+					j = encodeBlocks(in, off, next, out, j, table);
+					linePosition += blocks * BYTES_PER_BLOCK_OF_6_BITS;
+					off = next;
+				}
+			}
+			// Retain tail
+			final int tail = (len % BYTES_PER_BLOCK_OF_8_BITS);
+			for (int i = 0; i < tail; i++) {
+				carry[carryLength++] = in[off++];
+			}
+			return (j - outOff);
+		}
+
+		/**
+		 * Encode retained bytes (and padding), and reset encoder
+		 * 
+		 * @param out output (with room for {@link #maxEncodedLength(int) maxEncodedLength(0)} bytes)
+		 * @param outOff offset in output
+		 * @return number of bytes written
+		 */
+		public int finish(final byte[] out, final int outOff) {
+			int j = outOff;
+			if (carryLength > 0) {
+				j = newLine(out, j);
+				final int b1 = carry[0] & 0xFF;
+				final int b2 = ((carryLength > 1) ? (carry[1] & 0xFF) : 0);
+				final int block = (b1 << 16) | (b2 << 8);
+				out[j++] = table[block >>> 18];
+				out[j++] = table[(block >>> 12) & 0x3F];
+				if (carryLength > 1)
+					out[j++] = table[(block >>> 6) & 0x3F];
+				if (padding) {
+					for (int i = carryLength; i < BYTES_PER_BLOCK_OF_8_BITS; i++) {
+						out[j++] = PADDING_CHAR_STD;
+					}
+				}
+			}
+			reset();
+			return (j - outOff);
+		}
+
+		/**
+		 * Discard retained bytes and line position
+		 */
+		public void reset() {
+			carryLength = 0;
+			linePosition = 0;
+		}
+
+		private final int newLine(final byte[] out, int j) {
+			if ((lineLength > 0) && (linePosition >= lineLength)) {
+				System.arraycopy(lineSeparator, 0, out, j, lineSeparator.length);
+				j += lineSeparator.length;
+				linePosition = 0;
+			}
+			return j;
+		}
+	}
+
+	/**
+	 * Incremental Base64 decoder, keeps carry-over state between chunks (like CharsetDecoder). Accept
+	 * standard and URL-safe alphabets, ignore whitespace and line breaks (MIME), padding is optional.
+	 * 
+	 * <pre>
+	 * Decoder dec = Base64.newDecoder();
+	 * byte[] out = new byte[dec.maxDecodedLength(len)];
+	 * int n = dec.decode(in, off, len, out, 0); // repeat for each chunk
+	 * n += dec.finish(out, n); // last partial block, reset state
+	 * </pre>
+	 * 
+	 * Instances are not safe for use by multiple threads.
+	 */
+	public static final class Decoder {
+		private int bits = 0;
+		private int sextets = 0;
+		private boolean padded = false;
+
+		/**
+		 * Returns maximum number of bytes written by next {@link #decode} (or {@link #finish} if len=0)
+		 * 
+		 * @param len input length
+		 * @return
+		 */
+		public int maxDecodedLength(final int len) {
+			return ((sextets + len) / BYTES_PER_BLOCK_OF_6_BITS) * BYTES_PER_BLOCK_OF_8_BITS + 2;
+		}
+
+		/**
+		 * Decode a chunk of input, incomplete block is retained until next call or {@link #finish}
+		 * 
+		 * @param in input
+		 * @param off offset in input
+		 * @param len length of input
+		 * @param out output (with room for {@link #maxDecodedLength(int)} bytes)
+		 * @param outOff offset in output
+		 * @return number of bytes written
+		 * @throws IllegalArgumentException if input contains invalid chars or data after padding
+		 */
+		public int decode(final byte[] in, final int off, final int len, final byte[] out, final int outOff) {
+			final byte[] t = DECODE_TABLE_STRICT;
+			final int end = off + len;
+			int j = outOff;
+			int i = off;
+			while (i < end) {
+				// Fast path for runs of full blocks
+				if ((sextets == 0) && !padded) {
+					int k = i;
+					while ((k < end) && (t[in[k] & 0xFF] >= 0))
+						k++;
+					final int next = i + ((k - i) & ~(BYTES_PER_BLOCK_OF_6_BITS - 1));
+					j = decodeBlocks(in, i, next, out, j);
+					i = next;
+					if (i >= end)
+						break;
+				}
+				final int c = in[i++] & 0xFF;
+				final int v = t[c];
+				if (v >= 0) {
+					if (padded)
+						throw new IllegalArgumentException("Invalid data after padding");
+					bits = (bits << BITS_PER_B64_BYTE) | v;
+					if (++sextets == BYTES_PER_BLOCK_OF_6_BITS) {
+						out[j++] = (byte) (bits >>> 16);
+						out[j++] = (byte) (bits >>> 8);
+						out[j++] = (byte) bits;
+						bits = 0;
+						sextets = 0;
+					}
+				} else if (c == PADDING_CHAR_STD) {
+					padded = true;
+				} else if (v != DECODE_WHITESPACE) {
+					throw new IllegalArgumentException("Invalid char: 0x" + Integer.toHexString(c));
+				}
+			}
+			return (j - outOff);
+		}
+
+		/**
+		 * Decode retained chars (partial block), and reset decoder
+		 * 
+		 * @param out output (with room for 2 bytes)
+		 * @param outOff offset in output
+		 * @return number of bytes written
+		 */
+		public int finish(final byte[] out, final int outOff) {
+			int j = outOff;
+			if (sextets == 2) {
+				out[j++] = (byte) (bits >>> 4);
+			} else if (sextets == 3) {
+				out[j++] = (byte) (bits >>> 10);
+				out[j++] = (byte) (bits >>> 2);
+			}
+			reset();
+			return (j - outOff);
+		}
+
+		/**
+		 * Discard retained chars
+		 */
+		public void reset() {
+			bits = 0;
+			sextets = 0;
+			padded = false;
+		}
 	}
 
 	/**
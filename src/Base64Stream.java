@@ -0,0 +1,309 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The Base64Stream provides streaming Base64 encoding/decoding on a specified
+ * InputStream/OutputStream/Channel using {@link Base64.Encoder} and {@link Base64.Decoder}. Memory is
+ * limited to small fixed buffers (independent of payload size).
+ */
+public class Base64Stream {
+	static final int BUFFER_LENGTH = 4096;
+	// Input bytes per encode chunk (output is 4/3 + line separators)
+	static final int ENCODE_CHUNK = 3 * 768;
+
+	public static Base64OutputStream createEncoderOutputStream(final OutputStream out,
+			final boolean urlSafeEncoding) {
+		return new Base64OutputStream(out, Base64.newEncoder(urlSafeEncoding));
+	}
+
+	public static Base64OutputStream createMimeEncoderOutputStream(final OutputStream out) {
+		return new Base64OutputStream(out, Base64.newMimeEncoder());
+	}
+
+	public static Base64InputStream createDecoderInputStream(final InputStream in) {
+		return new Base64InputStream(in, Base64.newDecoder());
+	}
+
+	public static Base64WritableByteChannel createEncoderWritableByteChannel(final WritableByteChannel out,
+			final boolean urlSafeEncoding) {
+		return new Base64WritableByteChannel(out, Base64.newEncoder(urlSafeEncoding));
+	}
+
+	/**
+	 * Encode all bytes written and send to underlying OutputStream. Must be closed (or finished) to write the
+	 * last block and padding.
+	 */
+	public static class Base64OutputStream extends FilterOutputStream {
+		final Base64.Encoder encoder;
+		final byte[] outBuf;
+		final byte[] single = new byte[1];
+		boolean finished = false;
+
+		public Base64OutputStream(final OutputStream out, final Base64.Encoder encoder) {
+			super(out);
+			this.encoder = encoder;
+			this.outBuf = new byte[encoder.maxEncodedLength(ENCODE_CHUNK) + BUFFER_LENGTH];
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			single[0] = (byte) b;
+			write(single, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] b) throws IOException {
+			write(b, 0, b.length);
+		}
+
+		@Override
+		public void write(final byte[] b, int off, int len) throws IOException {
+			if (finished)
+				throw new IOException("Stream finished");
+			while (len > 0) {
+				final int chunk = Math.min(len, ENCODE_CHUNK);
+				final int n = encoder.encode(b, off, chunk, outBuf, 0);
+				if (n > 0)
+					out.write(outBuf, 0, n);
+				off += chunk;
+				len -= chunk;
+			}
+		}
+
+		/**
+		 * Write last block and padding, without closing underlying stream
+		 *
+		 * @throws IOException
+		 */
+		public void finish() throws IOException {
+			if (!finished) {
+				finished = true;
+				final int n = encoder.finish(outBuf, 0);
+				if (n > 0)
+					out.write(outBuf, 0, n);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				finish();
+			} finally {
+				super.close();
+			}
+		}
+	}
+
+	/**
+	 * Decode all bytes read from underlying InputStream.
+	 */
+	public static class Base64InputStream extends FilterInputStream {
+		final Base64.Decoder decoder;
+		final byte[] inBuf = new byte[BUFFER_LENGTH];
+		final byte[] decBuf;
+		final byte[] single = new byte[1];
+		int decPos = 0;
+		int decLen = 0;
+		boolean eof = false;
+
+		public Base64InputStream(final InputStream in, final Base64.Decoder decoder) {
+			super(in);
+			this.decoder = decoder;
+			this.decBuf = new byte[decoder.maxDecodedLength(BUFFER_LENGTH) + 2];
+		}
+
+		/**
+		 * Fill decoded buffer
+		 *
+		 * @return false if end of stream
+		 */
+		private boolean fill() throws IOException {
+			while (decPos >= decLen) {
+				if (eof)
+					return false;
+				decPos = decLen = 0;
+				final int read = in.read(inBuf, 0, inBuf.length);
+				try {
+					if (read < 0) {
+						eof = true;
+						decLen = decoder.finish(decBuf, 0);
+					} else {
+						decLen = decoder.decode(inBuf, 0, read, decBuf, 0);
+					}
+				} catch (IllegalArgumentException e) {
+					throw new IOException(e);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int read = read(single, 0, 1);
+			return ((read < 0) ? -1 : (single[0] & 0xFF));
+		}
+
+		@Override
+		public int read(final byte[] b) throws IOException {
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			final int n = Math.min(len, decLen - decPos);
+			System.arraycopy(decBuf, decPos, b, off, n);
+			decPos += n;
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			long total = 0;
+			while ((total < n) && fill()) {
+				final int s = (int) Math.min(n - total, decLen - decPos);
+				decPos += s;
+				total += s;
+			}
+			return total;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (decLen - decPos);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public synchronized void mark(final int readlimit) {
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+	}
+
+	/**
+	 * Encode all bytes written and send to underlying Channel. Must be closed (or finished) to write the last
+	 * block and padding.
+	 */
+	public static class Base64WritableByteChannel implements WritableByteChannel {
+		final WritableByteChannel out;
+		final Base64.Encoder encoder;
+		final byte[] inBuf = new byte[ENCODE_CHUNK];
+		final ByteBuffer outBuf;
+		boolean finished = false;
+
+		public Base64WritableByteChannel(final WritableByteChannel out, final Base64.Encoder encoder) {
+			this.out = out;
+			this.encoder = encoder;
+			this.outBuf = ByteBuffer.allocate(encoder.maxEncodedLength(ENCODE_CHUNK) + BUFFER_LENGTH);
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			if (finished)
+				throw new IOException("Channel finished");
+			final int total = src.remaining();
+			while (src.hasRemaining()) {
+				final int chunk = Math.min(src.remaining(), ENCODE_CHUNK);
+				final int n;
+				if (src.hasArray()) {
+					n = encoder.encode(src.array(), src.arrayOffset() + src.position(), chunk, outBuf.array(), 0);
+					src.position(src.position() + chunk);
+				} else {
+					src.get(inBuf, 0, chunk);
+					n = encoder.encode(inBuf, 0, chunk, outBuf.array(), 0);
+				}
+				flush(n);
+			}
+			return total;
+		}
+
+		private void flush(final int n) throws IOException {
+			outBuf.clear().limit(n);
+			while (outBuf.hasRemaining()) {
+				out.write(outBuf);
+			}
+		}
+
+		/**
+		 * Write last block and padding, without closing underlying channel
+		 *
+		 * @throws IOException
+		 */
+		public void finish() throws IOException {
+			if (!finished) {
+				finished = true;
+				flush(encoder.finish(outBuf.array(), 0));
+			}
+		}
+
+		@Override
+		public boolean isOpen() {
+			return out.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				finish();
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 */
+	public static void main(final String[] args) throws Throwable {
+		final byte[] data = new byte[100000];
+		new java.util.Random().nextBytes(data);
+		// Encode (MIME)
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final Base64OutputStream out = createMimeEncoderOutputStream(bos);
+		for (int i = 0; i < data.length; i += 1000) {
+			out.write(data, i, 1000);
+		}
+		out.close();
+		final byte[] encoded = bos.toByteArray();
+		System.out.println(new String(encoded, 0, 160, "ISO-8859-1"));
+		// Decode
+		final Base64InputStream in = createDecoderInputStream(new ByteArrayInputStream(encoded));
+		final ByteArrayOutputStream dec = new ByteArrayOutputStream();
+		final byte[] buf = new byte[777];
+		int read;
+		while ((read = in.read(buf)) != -1) {
+			dec.write(buf, 0, read);
+		}
+		in.close();
+		System.out.println("decoded equals=" + java.util.Arrays.equals(data, dec.toByteArray()));
+		// Channel (URL-safe)
+		final ByteArrayOutputStream cos = new ByteArrayOutputStream();
+		final Base64WritableByteChannel ch = createEncoderWritableByteChannel(Channels.newChannel(cos), true);
+		final ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+		bb.put(data).flip();
+		ch.write(bb);
+		ch.close();
+		System.out.println("channel equals=" + java.util.Arrays.equals(Base64.encode(data, true), cos.toByteArray()));
+	}
+}
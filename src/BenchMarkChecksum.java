@@ -0,0 +1,122 @@
+import java.util.Random;
+import java.util.zip.Checksum;
+
+/**
+ * Benchmark Checksum Algorithms: per-byte loop vs slicing-by-8 (small frames and big blocks)
+ */
+public class BenchMarkChecksum {
+	static final int LOOPS = 5;
+
+	static final String[] TEST_ALGORITHMS = {
+		"CRC8-bitwise", "CRC8", "CRC32", "CRC32C", "CRC64"
+	};
+
+	static Checksum newChecksum(final String alg) {
+		if ("CRC8-bitwise".equals(alg))
+			return new BitwiseCRC8();
+		if ("CRC8".equals(alg))
+			return new CRC8();
+		if ("CRC32".equals(alg))
+			return new CRC32();
+		if ("CRC32C".equals(alg))
+			return new CRC32C();
+		if ("CRC64".equals(alg))
+			return new CRC64();
+		throw new IllegalArgumentException(alg);
+	}
+
+	static void print(final String alg, final String mode, final long diff, final int len, final long value) {
+		System.out.println(alg + " " + mode + " time: " + diff + "ms\t" //
+				+ (len / 1024 / Math.max(diff, 1)) + "KB/ms\t" + Long.toHexString(value));
+	}
+
+	static void print(final String alg, final String mode, final long diff, final int len, final long value,
+			final long expected) {
+		System.out.println(alg + " " + mode + " time: " + diff + "ms\t" //
+				+ (len / 1024 / Math.max(diff, 1)) + "KB/ms\t" + Long.toHexString(value) //
+				+ (value == expected ? "" : "\tMISMATCH"));
+	}
+
+	public static void main(final String[] args) throws Throwable {
+		final Random r = new Random();
+		// Seed random buffer
+		final byte[] buf = new byte[32 * 1024 * 1024]; // 32MB
+		final int BLOCK = 4096;
+		final int FRAME = 64;
+		r.nextBytes(buf);
+		// Run Benchmarks
+		Checksum ck;
+		long begin, diff, value, perByte;
+		for (int t = 0; t < LOOPS; t++) {
+			System.out.println("--- Loop: " + t);
+			for (final String alg : TEST_ALGORITHMS) {
+				// Per-byte loop
+				begin = System.currentTimeMillis();
+				ck = newChecksum(alg);
+				for (int i = 0; i < buf.length; i++) {
+					ck.update(buf[i]);
+				}
+				diff = (System.currentTimeMillis() - begin);
+				perByte = ck.getValue();
+				print(alg, "per-byte", diff, buf.length, perByte);
+				// Small frames
+				begin = System.currentTimeMillis();
+				ck = newChecksum(alg);
+				value = 0;
+				for (int i = 0; i < buf.length; i += FRAME) {
+					ck.reset();
+					ck.update(buf, i, FRAME);
+					value ^= ck.getValue();
+				}
+				diff = (System.currentTimeMillis() - begin);
+				print(alg, "frames", diff, buf.length, value);
+				// Big blocks
+				begin = System.currentTimeMillis();
+				ck = newChecksum(alg);
+				for (int i = 0; i < buf.length; i += BLOCK) {
+					ck.update(buf, i, BLOCK);
+				}
+				diff = (System.currentTimeMillis() - begin);
+				print(alg, "blocks", diff, buf.length, ck.getValue(), perByte);
+			}
+		}
+	}
+
+	/**
+	 * Reference CRC-8 (poly=0xD5) bit-by-bit implementation (original CRC8 algorithm)
+	 */
+	static class BitwiseCRC8 implements Checksum {
+		private static final int poly = 0x0D5;
+		private int crc = 0;
+
+		@Override
+		public void update(final byte[] input, final int offset, final int len) {
+			for (int i = 0; i < len; i++) {
+				update(input[offset + i]);
+			}
+		}
+
+		@Override
+		public void update(final int b) {
+			crc ^= (b & 0xFF);
+			for (int j = 0; j < 8; j++) {
+				if ((crc & 0x80) != 0) {
+					crc = ((crc << 1) ^ poly);
+				} else {
+					crc <<= 1;
+				}
+			}
+			crc &= 0xFF;
+		}
+
+		@Override
+		public long getValue() {
+			return (crc & 0xFF);
+		}
+
+		@Override
+		public void reset() {
+			crc = 0;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Bounded pool of builders, safe for use by multiple threads, shared by {@link ByteArrayBuilder.Pool} and
+ * {@link DirectByteArrayBuilder.Pool}. Builders are reset on release, and builders that grew over the
+ * retained size cap (or don't fit in the pool) are dropped instead of being pooled.
+ *
+ * @param <T> type of builder
+ */
+abstract class BuilderPool<T> {
+	private final ArrayBlockingQueue<T> queue;
+	private final int initialCapacity;
+	private final int maxRetainedCapacity;
+
+	/**
+	 * Create pool
+	 *
+	 * @param maxPooled max number of idle builders retained
+	 * @param initialCapacity initial capacity of new builders
+	 * @param maxRetainedCapacity max capacity of a builder to be retained in pool
+	 */
+	BuilderPool(final int maxPooled, final int initialCapacity, final int maxRetainedCapacity) {
+		this.queue = new ArrayBlockingQueue<T>(maxPooled);
+		this.initialCapacity = initialCapacity;
+		this.maxRetainedCapacity = maxRetainedCapacity;
+	}
+
+	/**
+	 * Get an empty builder from pool (or a new one if pool is empty)
+	 *
+	 * @return
+	 */
+	public T acquire() {
+		T b = queue.poll();
+		if (b == null)
+			b = newBuilder(initialCapacity);
+		attach(b);
+		return b;
+	}
+
+	final void release(final T b) {
+		if (capacity(b) <= maxRetainedCapacity) {
+			reset(b);
+			if (queue.offer(b))
+				return;
+		}
+		drop(b);
+	}
+
+	/**
+	 * Returns number of idle builders in pool
+	 *
+	 * @return
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	abstract T newBuilder(final int capacity);
+
+	/**
+	 * Binds acquired builder to this pool (for release)
+	 */
+	abstract void attach(final T b);
+
+	abstract int capacity(final T b);
+
+	abstract void reset(final T b);
+
+	/**
+	 * Builder not retained in pool (left to GC)
+	 */
+	void drop(final T b) {
+	}
+}
@@ -1,4 +1,7 @@
 import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -13,13 +16,30 @@ import java.util.Arrays;
  * sequence contained in the builder does not exceed the capacity, it is not necessary to allocate a
  * new internal buffer. If the internal buffer overflows, it automatically double their size in power of 2.
  * 
- * Instances of ByteArrayBuilder are not safe for use by multiple threads.
+ * Instances of ByteArrayBuilder are not safe for use by multiple threads. Builders can be reused through
+ * a {@link Pool} (acquire, reset, release).
  */
 public final class ByteArrayBuilder {
 	public static final int INITIAL_SIZE = 16;
+	// Some VMs reserve some header words in an array
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	// Views of byte[] as short/int/long (unaligned access, single store)
+	private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.BIG_ENDIAN);
+	private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class,
+			ByteOrder.BIG_ENDIAN);
+	private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.BIG_ENDIAN);
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
 
 	private byte[] buf;
 	private int length;
+	private Pool pool;
 
 	/**
 	 * Constructs a byte array builder with no bytes in it and an initial capacity of 16 characters.
@@ -55,8 +75,8 @@ public final class ByteArrayBuilder {
 	 * @return
 	 */
 	public ByteArrayBuilder append(final byte b) {
-		if ((length + 1) > buf.length) {
-			resize(findNextPowerOfTwo(length + 1));
+		if (length == buf.length) {
+			resize(newCapacity(length + 1));
 		}
 		buf[length++] = b;
 		return this;
@@ -82,14 +102,307 @@ public final class ByteArrayBuilder {
 	 * @return
 	 */
 	public ByteArrayBuilder append(final byte[] bb, final int offset, final int len) {
-		if ((length + len) > buf.length) {
-			resize(findNextPowerOfTwo(length + len));
-		}
+		ensureCapacityInternal(len);
 		System.arraycopy(bb, offset, buf, length, len);
 		length += len;
 		return this;
 	}
 
+	/**
+	 * Appends the short (big-endian, 2 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendShortBE(final int v) {
+		ensureCapacityInternal(2);
+		SHORT_BE.set(buf, length, (short) v);
+		length += 2;
+		return this;
+	}
+
+	/**
+	 * Appends the short (little-endian, 2 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendShortLE(final int v) {
+		ensureCapacityInternal(2);
+		SHORT_LE.set(buf, length, (short) v);
+		length += 2;
+		return this;
+	}
+
+	/**
+	 * Appends the int (big-endian, 4 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendIntBE(final int v) {
+		ensureCapacityInternal(4);
+		INT_BE.set(buf, length, v);
+		length += 4;
+		return this;
+	}
+
+	/**
+	 * Appends the int (little-endian, 4 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendIntLE(final int v) {
+		ensureCapacityInternal(4);
+		INT_LE.set(buf, length, v);
+		length += 4;
+		return this;
+	}
+
+	/**
+	 * Appends the long (big-endian, 8 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendLongBE(final long v) {
+		ensureCapacityInternal(8);
+		LONG_BE.set(buf, length, v);
+		length += 8;
+		return this;
+	}
+
+	/**
+	 * Appends the long (little-endian, 8 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendLongLE(final long v) {
+		ensureCapacityInternal(8);
+		LONG_LE.set(buf, length, v);
+		length += 8;
+		return this;
+	}
+
+	/**
+	 * Appends the int as unsigned varint (LEB128, 1-5 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 * @see <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">Varints</a>
+	 */
+	public ByteArrayBuilder appendVarInt(int v) {
+		ensureCapacityInternal(ByteEncoding.MAX_VARINT_LENGTH);
+		final byte[] b = buf;
+		int i = length;
+		while ((v & ~0x7F) != 0) {
+			b[i++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		b[i++] = (byte) v;
+		length = i;
+		return this;
+	}
+
+	/**
+	 * Appends the long as unsigned varint (LEB128, 1-10 bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendVarLong(long v) {
+		ensureCapacityInternal(ByteEncoding.MAX_VARLONG_LENGTH);
+		final byte[] b = buf;
+		int i = length;
+		while ((v & ~0x7FL) != 0) {
+			b[i++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		b[i++] = (byte) v;
+		length = i;
+		return this;
+	}
+
+	/**
+	 * Appends the signed int as ZigZag varint (small absolute values use few bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendZigZag(final int v) {
+		return appendVarInt(ByteEncoding.zigZag(v));
+	}
+
+	/**
+	 * Appends the signed long as ZigZag varint (small absolute values use few bytes) to the sequence.
+	 * 
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder appendZigZag(final long v) {
+		return appendVarLong(ByteEncoding.zigZag(v));
+	}
+
+	/**
+	 * Appends the chars encoded in UTF-8 to the sequence, without intermediate arrays (malformed surrogates
+	 * are replaced with '?', like {@link String#getBytes(Charset)}).
+	 * 
+	 * @param s
+	 * @return
+	 */
+	public ByteArrayBuilder appendUtf8(final CharSequence s) {
+		final int len = s.length();
+		ensureCapacityInternal(len);
+		byte[] b = buf;
+		int j = length;
+		int i = 0;
+		// Fast path for ASCII
+		for (; i < len; i++) {
+			final char c = s.charAt(i);
+			if (c >= 0x80)
+				break;
+			b[j++] = (byte) c;
+		}
+		for (; i < len; i++) {
+			final char c = s.charAt(i);
+			// Room for this char (4 bytes max) and rest of chars as ASCII
+			if ((b.length - j) < (4 + len - i)) {
+				length = j;
+				ensureCapacityInternal(4 + len - i);
+				b = buf;
+			}
+			if (c < 0x80) {
+				b[j++] = (byte) c;
+			} else if (c < 0x800) {
+				b[j++] = (byte) (0xC0 | (c >> 6));
+				b[j++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				final char d = ((i + 1) < len ? s.charAt(i + 1) : 0);
+				if (Character.isHighSurrogate(c) && Character.isLowSurrogate(d)) {
+					final int cp = Character.toCodePoint(c, d);
+					b[j++] = (byte) (0xF0 | (cp >> 18));
+					b[j++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+					b[j++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+					b[j++] = (byte) (0x80 | (cp & 0x3F));
+					i++;
+				} else {
+					b[j++] = '?';
+				}
+			} else {
+				b[j++] = (byte) (0xE0 | (c >> 12));
+				b[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				b[j++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		length = j;
+		return this;
+	}
+
+	/**
+	 * Appends the chars as ASCII (one byte per char, non-ASCII chars are replaced with '?') to the
+	 * sequence.
+	 * 
+	 * @param s
+	 * @return
+	 */
+	public ByteArrayBuilder appendAscii(final CharSequence s) {
+		final int len = s.length();
+		ensureCapacityInternal(len);
+		final byte[] b = buf;
+		int j = length;
+		for (int i = 0; i < len; i++) {
+			final char c = s.charAt(i);
+			b[j++] = (byte) ((c < 0x80) ? c : '?');
+		}
+		length = j;
+		return this;
+	}
+
+	/**
+	 * Writes the short (big-endian, 2 bytes) at the specified index (index + 2 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putShortBE(final int index, final int v) {
+		checkIndex(index, 2);
+		SHORT_BE.set(buf, index, (short) v);
+		return this;
+	}
+
+	/**
+	 * Writes the short (little-endian, 2 bytes) at the specified index (index + 2 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putShortLE(final int index, final int v) {
+		checkIndex(index, 2);
+		SHORT_LE.set(buf, index, (short) v);
+		return this;
+	}
+
+	/**
+	 * Writes the int (big-endian, 4 bytes) at the specified index (index + 4 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putIntBE(final int index, final int v) {
+		checkIndex(index, 4);
+		INT_BE.set(buf, index, v);
+		return this;
+	}
+
+	/**
+	 * Writes the int (little-endian, 4 bytes) at the specified index (index + 4 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putIntLE(final int index, final int v) {
+		checkIndex(index, 4);
+		INT_LE.set(buf, index, v);
+		return this;
+	}
+
+	/**
+	 * Writes the long (big-endian, 8 bytes) at the specified index (index + 8 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putLongBE(final int index, final long v) {
+		checkIndex(index, 8);
+		LONG_BE.set(buf, index, v);
+		return this;
+	}
+
+	/**
+	 * Writes the long (little-endian, 8 bytes) at the specified index (index + 8 must not exceed length).
+	 * 
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public ByteArrayBuilder putLongLE(final int index, final long v) {
+		checkIndex(index, 8);
+		LONG_LE.set(buf, index, v);
+		return this;
+	}
+
+	private final void checkIndex(final int index, final int size) {
+		if ((index < 0) || (index > (length - size)))
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size + " length=" + length);
+	}
+
 	/**
 	 * Returns the byte value at the specified index. An index ranges from zero to
 	 * length() - 1. The first byte value of the sequence is at index zero, the next at index one, and so on,
@@ -186,6 +499,31 @@ public final class ByteArrayBuilder {
 		return buf.length;
 	}
 
+	/**
+	 * Ensures that the capacity is at least equal to the specified minimum.
+	 * 
+	 * @param minimumCapacity
+	 */
+	public void ensureCapacity(final int minimumCapacity) {
+		if (minimumCapacity > buf.length) {
+			resize(newCapacity(minimumCapacity));
+		}
+	}
+
+	/**
+	 * Ensures room for len more bytes (overflow-safe)
+	 * 
+	 * @param len
+	 */
+	private final void ensureCapacityInternal(final int len) {
+		if (len > (buf.length - length)) {
+			final int minCapacity = length + len;
+			if (minCapacity < 0) // overflow
+				throw new OutOfMemoryError("Required array size too large");
+			resize(newCapacity(minCapacity));
+		}
+	}
+
 	/**
 	 * Returns the length (character count).
 	 */
@@ -201,14 +539,36 @@ public final class ByteArrayBuilder {
 	public void setLength(final int newLength) {
 		if (newLength < 0)
 			throw new StringIndexOutOfBoundsException(newLength);
-		if (newLength > buf.length) {
-			resize(newLength);
-		} else if (length < newLength) {
-			Arrays.fill(buf, length, newLength, (byte) 0);
+		if (length < newLength) {
+			Arrays.fill(buf, length, Math.min(newLength, buf.length), (byte) 0);
+			if (newLength > buf.length)
+				resize(newLength);
 		}
 		length = newLength;
 	}
 
+	/**
+	 * Clears the sequence (length is set to zero), capacity is retained.
+	 * 
+	 * @return
+	 */
+	public ByteArrayBuilder reset() {
+		length = 0;
+		return this;
+	}
+
+	/**
+	 * Returns this builder to the {@link Pool} it was acquired from (no-op for builders not acquired from a
+	 * pool). The builder (and any reference to internal buffer) must not be used after release.
+	 */
+	public void release() {
+		final Pool p = pool;
+		if (p != null) {
+			pool = null;
+			p.release(this);
+		}
+	}
+
 	/**
 	 * Attempts to reduce storage used for the byte array.
 	 */
@@ -217,14 +577,57 @@ public final class ByteArrayBuilder {
 			resize(length);
 	}
 
-	private static final int findNextPowerOfTwo(final int n) {
-		return (int) Math.pow(2, Math.floor(Math.log(n) / Math.log(2)) + 1);
+	/**
+	 * Returns next power of two greater than minCapacity, capped to max array size
+	 * 
+	 * @param minCapacity (positive)
+	 * @return
+	 */
+	private static final int newCapacity(final int minCapacity) {
+		if (minCapacity >= (1 << 30)) // next power of two would overflow
+			return Math.max(minCapacity, MAX_ARRAY_SIZE);
+		return (Integer.highestOneBit(minCapacity) << 1);
 	}
 
 	private final void resize(final int newSize) {
-		final byte[] newbuf = new byte[newSize];
-		System.arraycopy(buf, 0, newbuf, 0, Math.min(length, buf.length));
-		this.buf = newbuf;
+		this.buf = Arrays.copyOf(buf, newSize);
+	}
+
+	/**
+	 * Bounded pool of builders, safe for use by multiple threads. Builders are reset on release, and builders
+	 * that grew over the retained size cap are dropped (left to GC) instead of being pooled.
+	 */
+	public static final class Pool extends BuilderPool<ByteArrayBuilder> {
+		/**
+		 * Create pool
+		 * 
+		 * @param maxPooled max number of idle builders retained
+		 * @param initialCapacity initial capacity of new builders
+		 * @param maxRetainedCapacity max capacity of a builder to be retained in pool
+		 */
+		public Pool(final int maxPooled, final int initialCapacity, final int maxRetainedCapacity) {
+			super(maxPooled, initialCapacity, maxRetainedCapacity);
+		}
+
+		@Override
+		ByteArrayBuilder newBuilder(final int capacity) {
+			return new ByteArrayBuilder(capacity);
+		}
+
+		@Override
+		void attach(final ByteArrayBuilder b) {
+			b.pool = this;
+		}
+
+		@Override
+		int capacity(final ByteArrayBuilder b) {
+			return b.buf.length;
+		}
+
+		@Override
+		void reset(final ByteArrayBuilder b) {
+			b.reset();
+		}
 	}
 
 	public static void main(String[] args) {
@@ -235,5 +638,20 @@ public final class ByteArrayBuilder {
 		bab.setLength(1);
 		bab.setLength(4);
 		System.out.println(bab.capacity() + " " + bab.length() + " " + bab.toString());
+		// Typed appends
+		final ByteArrayBuilder w = new ByteArrayBuilder();
+		w.appendIntBE(0).appendShortLE(0x0102).appendVarInt(300).appendZigZag(-2);
+		w.appendUtf8("a\u00f1\u20ac\ud83d\ude00");
+		w.putIntBE(0, w.length());
+		System.out.println(SimpleHex.bytesAsHex(w.toByteArray()));
+		// Pool
+		final Pool pool = new Pool(4, 64, 1024);
+		final ByteArrayBuilder p1 = pool.acquire().append(new byte[100]);
+		p1.release();
+		final ByteArrayBuilder p2 = pool.acquire();
+		System.out.println((p1 == p2) + " " + p2.capacity() + " " + p2.length());
+		p2.append(new byte[2000]).release();
+		p2.release();
+		System.out.println(pool.size());
 	}
 }
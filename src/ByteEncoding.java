@@ -0,0 +1,32 @@
+/**
+ * Encoding helpers shared by {@link ByteArrayBuilder} and {@link DirectByteArrayBuilder}. The builders write
+ * the bytes straight into their own buffer, these are only the sizes and mappings both need.
+ */
+final class ByteEncoding {
+	// max bytes of unsigned varint (LEB128)
+	static final int MAX_VARINT_LENGTH = 5;
+	static final int MAX_VARLONG_LENGTH = 10;
+
+	private ByteEncoding() {
+	}
+
+	/**
+	 * Maps signed int to unsigned (ZigZag), so small absolute values use few bytes as varint.
+	 *
+	 * @param v
+	 * @return
+	 */
+	static int zigZag(final int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	/**
+	 * Maps signed long to unsigned (ZigZag), so small absolute values use few bytes as varint.
+	 *
+	 * @param v
+	 * @return
+	 */
+	static long zigZag(final long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+}
@@ -0,0 +1,385 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Checksum;
+
+/**
+ * Generic CRC Checksum using Rocksoft Model (width, poly, init, refin, refout, xorout)
+ * <p>
+ * Tables are generated lazily and cached per (width, poly, refin), the kernel is selected by width
+ * (32 bits int tables for width &lt;= 32, 64 bits long tables otherwise) and bit order, all kernels are
+ * slicing-by-8.
+ *
+ * <pre>
+ * Checksum crc = new CRC(CRC.CRC16_IBM_3740);
+ * crc.update("123456789".getBytes());
+ * crc.getValue(); // 0x29B1
+ * </pre>
+ *
+ * @url http://www.ross.net/crc/download/crc_v3.txt
+ * @url http://reveng.sourceforge.net/crc-catalogue/
+ */
+public class CRC implements Checksum {
+	/**
+	 * CRC-8/DVB-S2 (same as {@link CRC8})
+	 */
+	public static final Model CRC8_DVB_S2 = new Model("CRC-8/DVB-S2", 8, 0xD5, 0x00, false, false, 0x00, 0xBC);
+	/**
+	 * CRC-16/IBM-3740 (alias CRC-16/CCITT-FALSE)
+	 */
+	public static final Model CRC16_IBM_3740 = new Model("CRC-16/IBM-3740", 16, 0x1021, 0xFFFF, false, false,
+			0x0000, 0x29B1);
+	/**
+	 * CRC-16/KERMIT (alias CRC-16/CCITT)
+	 */
+	public static final Model CRC16_KERMIT = new Model("CRC-16/KERMIT", 16, 0x1021, 0x0000, true, true, 0x0000,
+			0x2189);
+	/**
+	 * CRC-32/ISO-HDLC (same as {@link CRC32})
+	 */
+	public static final Model CRC32_ISO_HDLC = new Model("CRC-32/ISO-HDLC", 32, 0x04C11DB7L, 0xFFFFFFFFL, true,
+			true, 0xFFFFFFFFL, 0xCBF43926L);
+	/**
+	 * CRC-32/ISCSI (same as {@link CRC32C})
+	 */
+	public static final Model CRC32_ISCSI = new Model("CRC-32/ISCSI", 32, 0x1EDC6F41L, 0xFFFFFFFFL, true, true,
+			0xFFFFFFFFL, 0xE3069283L);
+	/**
+	 * CRC-32/MPEG-2
+	 */
+	public static final Model CRC32_MPEG2 = new Model("CRC-32/MPEG-2", 32, 0x04C11DB7L, 0xFFFFFFFFL, false,
+			false, 0x00000000L, 0x0376E6E7L);
+	/**
+	 * CRC-64/ECMA-182 (same as {@link CRC64})
+	 */
+	public static final Model CRC64_ECMA_182 = new Model("CRC-64/ECMA-182", 64, 0x42F0E1EBA9EA3693L, 0x0L,
+			false, false, 0x0L, 0x6C40DF5F0B497347L);
+	/**
+	 * CRC-64/XZ
+	 */
+	public static final Model CRC64_XZ = new Model("CRC-64/XZ", 64, 0x42F0E1EBA9EA3693L, 0xFFFFFFFFFFFFFFFFL,
+			true, true, 0xFFFFFFFFFFFFFFFFL, 0x995DC9BBDF1939FAL);
+
+	static final Model[] CATALOG = {
+		CRC8_DVB_S2, CRC16_IBM_3740, CRC16_KERMIT, CRC32_ISO_HDLC, CRC32_ISCSI, CRC32_MPEG2, CRC64_ECMA_182,
+		CRC64_XZ
+	};
+
+	private static final ConcurrentHashMap<TableKey, Object> TABLES_CACHE = new ConcurrentHashMap<TableKey, Object>();
+
+	private static final int KERNEL_NORMAL32 = 0;
+	private static final int KERNEL_REFLECTED32 = 1;
+	private static final int KERNEL_NORMAL64 = 2;
+	private static final int KERNEL_REFLECTED64 = 3;
+
+	private final Model model;
+	private final int kernel;
+	private final int shift; // left-alignment of normal registers
+	private final long initRegister;
+	private final int[][] tables32;
+	private final long[][] tables64;
+	private long crc;
+
+	/**
+	 * Create CRC for a model
+	 *
+	 * @param model
+	 */
+	public CRC(final Model model) {
+		this.model = model;
+		final boolean wide = (model.width > 32);
+		this.kernel = (wide ? (model.refin ? KERNEL_REFLECTED64 : KERNEL_NORMAL64)
+				: (model.refin ? KERNEL_REFLECTED32 : KERNEL_NORMAL32));
+		this.shift = (model.refin ? 0 : ((wide ? 64 : 32) - model.width));
+		final Object tables = getTables(model);
+		this.tables32 = (wide ? null : (int[][]) tables);
+		this.tables64 = (wide ? (long[][]) tables : null);
+		this.initRegister = (model.refin ? reflect(model.init, model.width) : (model.init << shift));
+		this.crc = initRegister;
+	}
+
+	/**
+	 * Get tables from cache or generate them
+	 */
+	private static Object getTables(final Model model) {
+		final TableKey key = new TableKey(model.width, model.poly, model.refin);
+		Object tables = TABLES_CACHE.get(key);
+		if (tables == null) {
+			tables = generateTables(model);
+			final Object old = TABLES_CACHE.putIfAbsent(key, tables);
+			if (old != null)
+				tables = old;
+		}
+		return tables;
+	}
+
+	private static Object generateTables(final Model model) {
+		final int width = model.width;
+		if (width > 32) {
+			final long[] table = new long[256];
+			if (model.refin) {
+				final long poly = reflect(model.poly, width);
+				for (int i = 0; i < 256; i++) {
+					long c = i;
+					for (int j = 0; j < 8; j++) {
+						c = ((c & 1) != 0 ? ((c >>> 1) ^ poly) : (c >>> 1));
+					}
+					table[i] = c;
+				}
+				return CRCSlicing.tablesReflected64(table);
+			}
+			final long poly = (model.poly << (64 - width));
+			for (int i = 0; i < 256; i++) {
+				long c = ((long) i << 56);
+				for (int j = 0; j < 8; j++) {
+					c = ((c < 0) ? ((c << 1) ^ poly) : (c << 1));
+				}
+				table[i] = c;
+			}
+			return CRCSlicing.tablesNormal64(table);
+		}
+		final int[] table = new int[256];
+		if (model.refin) {
+			final int poly = (int) reflect(model.poly, width);
+			for (int i = 0; i < 256; i++) {
+				int c = i;
+				for (int j = 0; j < 8; j++) {
+					c = ((c & 1) != 0 ? ((c >>> 1) ^ poly) : (c >>> 1));
+				}
+				table[i] = c;
+			}
+			return CRCSlicing.tablesReflected32(table);
+		}
+		final int poly = (int) (model.poly << (32 - width));
+		for (int i = 0; i < 256; i++) {
+			int c = (i << 24);
+			for (int j = 0; j < 8; j++) {
+				c = ((c < 0) ? ((c << 1) ^ poly) : (c << 1));
+			}
+			table[i] = c;
+		}
+		return CRCSlicing.tablesNormal32(table);
+	}
+
+	/**
+	 * Reverse the low width bits of value
+	 */
+	static long reflect(final long value, final int width) {
+		return (Long.reverse(value) >>> (64 - width));
+	}
+
+	/**
+	 * Returns the model of this CRC
+	 */
+	public Model getModel() {
+		return model;
+	}
+
+	@Override
+	public void update(final int b) {
+		switch (kernel) {
+			case KERNEL_NORMAL32: {
+				final int c = (int) crc;
+				crc = ((c << 8) ^ tables32[0][((c >>> 24) ^ b) & 0xFF]) & 0xFFFFFFFFL;
+				break;
+			}
+			case KERNEL_REFLECTED32: {
+				final int c = (int) crc;
+				crc = ((c >>> 8) ^ tables32[0][(c ^ b) & 0xFF]) & 0xFFFFFFFFL;
+				break;
+			}
+			case KERNEL_NORMAL64:
+				crc = (crc << 8) ^ tables64[0][((int) (crc >>> 56) ^ b) & 0xFF];
+				break;
+			case KERNEL_REFLECTED64:
+				crc = (crc >>> 8) ^ tables64[0][((int) crc ^ b) & 0xFF];
+				break;
+		}
+	}
+
+	@Override
+	public void update(final byte[] buffer, final int offset, final int length) {
+		switch (kernel) {
+			case KERNEL_NORMAL32:
+				crc = CRCSlicing.updateNormal32((int) crc, tables32, buffer, offset, length) & 0xFFFFFFFFL;
+				break;
+			case KERNEL_REFLECTED32:
+				crc = CRCSlicing.updateReflected32((int) crc, tables32, buffer, offset, length) & 0xFFFFFFFFL;
+				break;
+			case KERNEL_NORMAL64:
+				crc = CRCSlicing.updateNormal64(crc, tables64, buffer, offset, length);
+				break;
+			case KERNEL_REFLECTED64:
+				crc = CRCSlicing.updateReflected64(crc, tables64, buffer, offset, length);
+				break;
+		}
+	}
+
+	public void update(final byte[] buffer) {
+		update(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Updates the checksum with the bytes from position to limit of the buffer. Heap, direct and mapped
+	 * buffers are read in place. Upon return, the buffer's position will be equal to its limit.
+	 *
+	 * @param buffer
+	 */
+	@Override
+	public void update(final ByteBuffer buffer) {
+		final int pos = buffer.position();
+		final int limit = buffer.limit();
+		update(buffer, pos, limit - pos);
+		buffer.position(limit);
+	}
+
+	/**
+	 * Updates the checksum with the bytes of the buffer in the range [offset, offset+length) using absolute
+	 * reads, the buffer position is not modified.
+	 *
+	 * @param buffer
+	 * @param offset absolute index
+	 * @param length
+	 */
+	public void update(final ByteBuffer buffer, final int offset, final int length) {
+		if ((offset < 0) || (length < 0) || (offset > buffer.limit() - length))
+			throw new IndexOutOfBoundsException();
+		switch (kernel) {
+			case KERNEL_NORMAL32:
+				crc = CRCSlicing.updateNormal32((int) crc, tables32, buffer, offset, length) & 0xFFFFFFFFL;
+				break;
+			case KERNEL_REFLECTED32:
+				crc = CRCSlicing.updateReflected32((int) crc, tables32, buffer, offset, length) & 0xFFFFFFFFL;
+				break;
+			case KERNEL_NORMAL64:
+				crc = CRCSlicing.updateNormal64(crc, tables64, buffer, offset, length);
+				break;
+			case KERNEL_REFLECTED64:
+				crc = CRCSlicing.updateReflected64(crc, tables64, buffer, offset, length);
+				break;
+		}
+	}
+
+	@Override
+	public long getValue() {
+		final int width = model.width;
+		long value = (crc >>> shift);
+		if (model.refin != model.refout)
+			value = reflect(value, width);
+		value ^= model.xorout;
+		return ((width == 64) ? value : (value & ((1L << width) - 1)));
+	}
+
+	@Override
+	public void reset() {
+		crc = initRegister;
+	}
+
+	/**
+	 * Rocksoft Model CRC parameters
+	 */
+	public static final class Model {
+		public final String name;
+		public final int width;
+		public final long poly;
+		public final long init;
+		public final boolean refin;
+		public final boolean refout;
+		public final long xorout;
+		public final long check;
+
+		/**
+		 * Create CRC parameters (values as in reveng catalogue)
+		 *
+		 * @param name of algorithm
+		 * @param width in bits (1-64)
+		 * @param poly polynomial in normal form (without x^width term)
+		 * @param init initial register value (normal form)
+		 * @param refin true if input bytes are reflected (LSB first)
+		 * @param refout true if register is reflected before xorout
+		 * @param xorout value xored to final register
+		 * @param check value of CRC for "123456789" (ASCII)
+		 */
+		public Model(final String name, final int width, final long poly, final long init, final boolean refin,
+				final boolean refout, final long xorout, final long check) {
+			if ((width < 1) || (width > 64))
+				throw new IllegalArgumentException("Invalid width: " + width);
+			this.name = name;
+			this.width = width;
+			this.poly = poly;
+			this.init = init;
+			this.refin = refin;
+			this.refout = refout;
+			this.xorout = xorout;
+			this.check = check;
+		}
+
+		@Override
+		public String toString() {
+			return name + " [width=" + width + " poly=0x" + Long.toHexString(poly) + " init=0x"
+					+ Long.toHexString(init) + " refin=" + refin + " refout=" + refout + " xorout=0x"
+					+ Long.toHexString(xorout) + " check=0x" + Long.toHexString(check) + "]";
+		}
+	}
+
+	private static final class TableKey {
+		private final int width;
+		private final long poly;
+		private final boolean refin;
+
+		TableKey(final int width, final long poly, final boolean refin) {
+			this.width = width;
+			this.poly = poly;
+			this.refin = refin;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (poly ^ (poly >>> 32)) * 31 + (width << 1) + (refin ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof TableKey))
+				return false;
+			final TableKey o = (TableKey) obj;
+			return (width == o.width) && (poly == o.poly) && (refin == o.refin);
+		}
+	}
+
+	/**
+	 * Catalog Test
+	 */
+	public static void main(final String[] args) {
+		final byte[] check = "123456789".getBytes();
+		for (final Model m : CATALOG) {
+			final CRC crc = new CRC(m);
+			crc.update(check);
+			System.out.println((crc.getValue() == m.check ? "OK   " : "FAIL ") + m.name + "\t0x"
+					+ Long.toHexString(crc.getValue()));
+		}
+		// Compare with hand-written classes
+		final java.util.Random r = new java.util.Random();
+		final byte[] buf = new byte[4096];
+		final Checksum[][] pairs = {
+				{ new CRC(CRC8_DVB_S2), new CRC8() }, //
+				{ new CRC(CRC32_ISO_HDLC), new CRC32() }, //
+				{ new CRC(CRC32_ISCSI), new CRC32C() }, //
+				{ new CRC(CRC64_ECMA_182), new CRC64() }, //
+		};
+		for (final Checksum[] pair : pairs) {
+			boolean ok = true;
+			for (int i = 0; i < 1000; i++) {
+				r.nextBytes(buf);
+				final int off = r.nextInt(16);
+				final int len = r.nextInt(buf.length - off);
+				pair[0].reset();
+				pair[1].reset();
+				pair[0].update(buf, off, len);
+				pair[1].update(buf, off, len);
+				ok &= (pair[0].getValue() == pair[1].getValue());
+			}
+			System.out.println((ok ? "OK   " : "FAIL ") + ((CRC) pair[0]).getModel().name + " == "
+					+ pair[1].getClass().getSimpleName());
+		}
+	}
+}
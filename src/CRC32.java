@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.zip.Checksum;
 
 /**
@@ -81,6 +84,10 @@ public class CRC32 implements Checksum {
 		0xB40BBE37, 0xC30C8EA1, 0x5A05DF1B, 0x2D02EF8D,
 	};
 
+	private static final int[][] CRC_TABLES = CRCSlicing.tablesReflected32(CRC_TABLE);
+
+	private static final CRCCombine COMBINE = new CRCCombine(32, 0xEDB88320L, true);
+
 	private int crc = ~0;
 
 	public void update(int d) {
@@ -88,12 +95,38 @@ public class CRC32 implements Checksum {
 	}
 
 	public void update(byte[] buffer, int offset, int length) {
-		for (int i = offset; length > 0; length--)
-			update(buffer[i++]);
+		crc = CRCSlicing.updateReflected32(crc, CRC_TABLES, buffer, offset, length);
 	}
 	public void update(byte[] buffer) {
-		for (int i = 0; i < buffer.length; i++)
-			update(buffer[i]);
+		crc = CRCSlicing.updateReflected32(crc, CRC_TABLES, buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Updates the checksum with the bytes from position to limit of the buffer. Heap, direct and mapped
+	 * buffers are read in place. Upon return, the buffer's position will be equal to its limit.
+	 * 
+	 * @param buffer
+	 */
+	@Override
+	public void update(final ByteBuffer buffer) {
+		final int pos = buffer.position();
+		final int limit = buffer.limit();
+		update(buffer, pos, limit - pos);
+		buffer.position(limit);
+	}
+
+	/**
+	 * Updates the checksum with the bytes of the buffer in the range [offset, offset+length) using absolute
+	 * reads, the buffer position is not modified.
+	 * 
+	 * @param buffer
+	 * @param offset absolute index
+	 * @param length
+	 */
+	public void update(final ByteBuffer buffer, final int offset, final int length) {
+		if ((offset < 0) || (length < 0) || (offset > buffer.limit() - length))
+			throw new IndexOutOfBoundsException();
+		crc = CRCSlicing.updateReflected32(crc, CRC_TABLES, buffer, offset, length);
 	}
 
 	public long getValue() {
@@ -104,4 +137,33 @@ public class CRC32 implements Checksum {
 		crc = ~0;
 	}
 
+	/**
+	 * Combine two CRC32 values into the CRC32 of the concatenated blocks
+	 * 
+	 * @param crcA CRC32 of first block
+	 * @param crcB CRC32 of second block
+	 * @param lengthB length of second block in bytes
+	 * @return CRC32 of first block followed by second block
+	 * @throws IllegalArgumentException if a crc has bits set above width or length is negative
+	 */
+	public static long combine(final long crcA, final long crcB, final long lengthB) {
+		return COMBINE.combine(crcA, crcB, lengthB);
+	}
+
+	/**
+	 * Calculate CRC32 of a whole file, chunks are checksummed in parallel (one per core) and combined
+	 * 
+	 * @param channel to read (position is not modified)
+	 * @return same value as sequential CRC32
+	 * @throws IOException
+	 */
+	public static long parallelChecksum(final FileChannel channel) throws IOException {
+		return COMBINE.parallelChecksum(channel, new CRCCombine.ChecksumFactory() {
+			@Override
+			public Checksum newChecksum() {
+				return new CRC32();
+			}
+		});
+	}
+
 }
@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.zip.Checksum;
 
 /**
@@ -106,6 +109,10 @@ public class CRC64 implements Checksum {
 		0x913F6188692D6F4BL, 0xD3CF8063C0C759D8L, 0x5DEDC41A34BBEEB2L,
 		0x1F1D25F19D51D821L, 0xD80C07CD676F8394L, 0x9AFCE626CE85B507L
 	}; 	
+	private static final long[][] CRC_TABLES = CRCSlicing.tablesNormal64(CRC_TABLE);
+
+	private static final CRCCombine COMBINE = new CRCCombine(64, 0x42F0E1EBA9EA3693L, false);
+
 	private long crc = 0;
 
 	@Override
@@ -120,13 +127,39 @@ public class CRC64 implements Checksum {
 
 	@Override
 	public void update(final byte[] buffer, final int offset, int length) {
-		for (int i = offset; length > 0; length--)
-			update(buffer[i++]);
+		crc = CRCSlicing.updateNormal64(crc, CRC_TABLES, buffer, offset, length);
 	}
 
 	public void update(final byte[] buffer) {
-		for (int i = 0; i < buffer.length; i++)
-			update(buffer[i]);
+		crc = CRCSlicing.updateNormal64(crc, CRC_TABLES, buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Updates the checksum with the bytes from position to limit of the buffer. Heap, direct and mapped
+	 * buffers are read in place. Upon return, the buffer's position will be equal to its limit.
+	 * 
+	 * @param buffer
+	 */
+	@Override
+	public void update(final ByteBuffer buffer) {
+		final int pos = buffer.position();
+		final int limit = buffer.limit();
+		update(buffer, pos, limit - pos);
+		buffer.position(limit);
+	}
+
+	/**
+	 * Updates the checksum with the bytes of the buffer in the range [offset, offset+length) using absolute
+	 * reads, the buffer position is not modified.
+	 * 
+	 * @param buffer
+	 * @param offset absolute index
+	 * @param length
+	 */
+	public void update(final ByteBuffer buffer, final int offset, final int length) {
+		if ((offset < 0) || (length < 0) || (offset > buffer.limit() - length))
+			throw new IndexOutOfBoundsException();
+		crc = CRCSlicing.updateNormal64(crc, CRC_TABLES, buffer, offset, length);
 	}
 
 	@Override
@@ -139,6 +172,35 @@ public class CRC64 implements Checksum {
 		crc = 0;
 	}
 
+	/**
+	 * Combine two CRC64 values into the CRC64 of the concatenated blocks
+	 * 
+	 * @param crcA CRC64 of first block
+	 * @param crcB CRC64 of second block
+	 * @param lengthB length of second block in bytes
+	 * @return CRC64 of first block followed by second block
+	 * @throws IllegalArgumentException if a crc has bits set above width or length is negative
+	 */
+	public static long combine(final long crcA, final long crcB, final long lengthB) {
+		return COMBINE.combine(crcA, crcB, lengthB);
+	}
+
+	/**
+	 * Calculate CRC64 of a whole file, chunks are checksummed in parallel (one per core) and combined
+	 * 
+	 * @param channel to read (position is not modified)
+	 * @return same value as sequential CRC64
+	 * @throws IOException
+	 */
+	public static long parallelChecksum(final FileChannel channel) throws IOException {
+		return COMBINE.parallelChecksum(channel, new CRCCombine.ChecksumFactory() {
+			@Override
+			public Checksum newChecksum() {
+				return new CRC64();
+			}
+		});
+	}
+
 	/**
 	 * Test
 	 */
@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import java.util.zip.Checksum;
 
 /**
@@ -7,34 +8,67 @@ import java.util.zip.Checksum;
  */
 public class CRC8 implements Checksum {
 	private static final int poly = 0x0D5;
+	private static final int[] CRC_TABLE = new int[256];
+	private static final int[][] CRC_TABLES;
+
+	static {
+		// Precompute table from polynomial (bit-by-bit algorithm)
+		for (int i = 0; i < 256; i++) {
+			int c = i;
+			for (int j = 0; j < 8; j++) {
+				if ((c & 0x80) != 0) {
+					c = ((c << 1) ^ poly);
+				} else {
+					c <<= 1;
+				}
+			}
+			CRC_TABLE[i] = (c & 0xFF);
+		}
+		CRC_TABLES = CRCSlicing.tablesNormal8(CRC_TABLE);
+	}
+
 	private int crc = 0;
 
 	@Override
 	public void update(final byte[] input, final int offset, final int len) {
-		for (int i = 0; i < len; i++) {
-			update(input[offset + i]);
-		}
+		crc = CRCSlicing.updateNormal8(crc, CRC_TABLES, input, offset, len);
 	}
 
 	public void update(final byte[] input) {
 		update(input, 0, input.length);
 	}
 
-	private final void update(final byte b) {
-		crc ^= b;
-		for (int j = 0; j < 8; j++) {
-			if ((crc & 0x80) != 0) {
-				crc = ((crc << 1) ^ poly);
-			} else {
-				crc <<= 1;
-			}
-		}
-		crc &= 0xFF;
+	/**
+	 * Updates the checksum with the bytes from position to limit of the buffer. Heap, direct and mapped
+	 * buffers are read in place. Upon return, the buffer's position will be equal to its limit.
+	 * 
+	 * @param buffer
+	 */
+	@Override
+	public void update(final ByteBuffer buffer) {
+		final int pos = buffer.position();
+		final int limit = buffer.limit();
+		update(buffer, pos, limit - pos);
+		buffer.position(limit);
+	}
+
+	/**
+	 * Updates the checksum with the bytes of the buffer in the range [offset, offset+length) using absolute
+	 * reads, the buffer position is not modified.
+	 * 
+	 * @param buffer
+	 * @param offset absolute index
+	 * @param length
+	 */
+	public void update(final ByteBuffer buffer, final int offset, final int length) {
+		if ((offset < 0) || (length < 0) || (offset > buffer.limit() - length))
+			throw new IndexOutOfBoundsException();
+		crc = CRCSlicing.updateNormal8(crc, CRC_TABLES, buffer, offset, length);
 	}
 
 	@Override
 	public void update(final int b) {
-		update((byte) b);
+		crc = CRC_TABLE[(crc ^ b) & 0xFF];
 	}
 
 	@Override
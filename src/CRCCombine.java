@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.Checksum;
+
+/**
+ * Combine two CRC (crcA of blockA, crcB of blockB) into the CRC of blockA+blockB without access to data,
+ * using GF(2) matrix operators for "append N zero bytes" (same technique as zlib crc32_combine).
+ * <p>
+ * Operators for 2^k zero bytes are precomputed, so combine cost is one matrix-vector product per bit set in
+ * lengthB.
+ *
+ * @url https://github.com/madler/zlib/blob/master/crc32.c
+ */
+final class CRCCombine {
+	private static final int MIN_CHUNK = 1024 * 1024; // 1MB
+	private static final int MAX_CHUNK = 64 * 1024 * 1024; // 64MB
+
+	private final int width;
+	// bits above width must be zero in crc values
+	private final long mask;
+	// zeros[k] = operator for 2^k zero bytes
+	private final long[][] zeros = new long[63][];
+
+	/**
+	 * Create combiner for a polynomial
+	 *
+	 * @param width in bits (1-64)
+	 * @param poly polynomial (reflected form if reflected is true)
+	 * @param reflected true for LSB first CRC
+	 */
+	CRCCombine(final int width, final long poly, final boolean reflected) {
+		this.width = width;
+		this.mask = ((width == 64) ? -1L : ((1L << width) - 1));
+		// Operator for one zero bit
+		final long[] op = new long[width];
+		if (reflected) {
+			op[0] = poly;
+			for (int n = 1; n < width; n++) {
+				op[n] = 1L << (n - 1);
+			}
+		} else {
+			for (int n = 0; n < width - 1; n++) {
+				op[n] = 1L << (n + 1);
+			}
+			op[width - 1] = poly;
+		}
+		// One zero byte = 8 zero bits
+		long[] m = op;
+		for (int i = 0; i < 3; i++) {
+			m = square(m);
+		}
+		zeros[0] = m;
+		for (int k = 1; k < zeros.length; k++) {
+			zeros[k] = square(zeros[k - 1]);
+		}
+	}
+
+	private static long times(final long[] mat, long vec) {
+		long sum = 0;
+		for (int i = 0; vec != 0; i++, vec >>>= 1) {
+			if ((vec & 1) != 0)
+				sum ^= mat[i];
+		}
+		return sum;
+	}
+
+	private long[] square(final long[] mat) {
+		final long[] sq = new long[width];
+		for (int n = 0; n < width; n++) {
+			sq[n] = times(mat, mat[n]);
+		}
+		return sq;
+	}
+
+	/**
+	 * Combine two CRC values (valid for CRC with equal init and xorout)
+	 *
+	 * @param crcA crc of first block
+	 * @param crcB crc of second block
+	 * @param lengthB length of second block in bytes
+	 * @return crc of both blocks
+	 * @throws IllegalArgumentException if a crc has bits set above width or length is negative
+	 */
+	long combine(long crcA, final long crcB, long lengthB) {
+		if (lengthB < 0)
+			throw new IllegalArgumentException("Invalid length: " + lengthB);
+		if (((crcA & ~mask) != 0) || ((crcB & ~mask) != 0))
+			throw new IllegalArgumentException("Invalid crc for width " + width + ": " + Long.toHexString(crcA)
+					+ " " + Long.toHexString(crcB));
+		for (int k = 0; lengthB != 0; k++, lengthB >>>= 1) {
+			if ((lengthB & 1) != 0)
+				crcA = times(zeros[k], crcA);
+		}
+		return crcA ^ crcB;
+	}
+
+	/**
+	 * Calculate checksum of whole file, splitting in chunks processed in parallel (ForkJoin common pool)
+	 *
+	 * @param channel to read (position is not modified)
+	 * @param factory of checksums
+	 * @return same value as sequential checksum
+	 * @throws IOException
+	 */
+	long parallelChecksum(final FileChannel channel, final ChecksumFactory factory) throws IOException {
+		final long size = channel.size();
+		if (size == 0)
+			return factory.newChecksum().getValue();
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final long chunk = Math.max(MIN_CHUNK,
+				Math.min(MAX_CHUNK, size / (pool.getParallelism() * 4L)));
+		try {
+			return pool.invoke(new ChunkTask(channel, factory, chunk, 0, size));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	static interface ChecksumFactory {
+		Checksum newChecksum();
+	}
+
+	private final class ChunkTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 42L;
+		private final FileChannel channel;
+		private final ChecksumFactory factory;
+		private final long chunk;
+		private final long offset;
+		private final long length;
+
+		ChunkTask(final FileChannel channel, final ChecksumFactory factory, final long chunk,
+				final long offset, final long length) {
+			this.channel = channel;
+			this.factory = factory;
+			this.chunk = chunk;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		protected Long compute() {
+			if (length <= chunk) {
+				try {
+					final MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+					final Checksum ck = factory.newChecksum();
+					ck.update(map);
+					return ck.getValue();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			final long half = Math.max(1, (length / chunk) >>> 1) * chunk;
+			final ChunkTask left = new ChunkTask(channel, factory, chunk, offset, half);
+			final ChunkTask right = new ChunkTask(channel, factory, chunk, offset + half, length - half);
+			left.fork();
+			final long crcB = right.compute();
+			final long crcA = left.join();
+			return combine(crcA, crcB, length - half);
+		}
+	}
+}
@@ -0,0 +1,436 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Slicing-by-8 engine for table driven CRC (normal 8 bits, normal/reflected 32 bits and normal/reflected 64 bits).
+ * Normal registers narrower than the kernel are left-aligned, reflected registers are right-aligned.
+ * <p>
+ * Process 8 input bytes per iteration using 8 lookup tables derived from the classic 256 entries table,
+ * results are bit-identical to the byte-at-a-time algorithm. ByteBuffer variants read heap, direct and mapped
+ * buffers in place (absolute reads, buffer position is never modified).
+ *
+ * @url http://www.intel.com/technology/comms/perfnet/download/CRC_generators.pdf
+ */
+final class CRCSlicing {
+	static final int SLICES = 8;
+
+	private CRCSlicing() {
+	}
+
+	/**
+	 * Generate slicing tables for a normal (MSB first) 8 bits CRC
+	 *
+	 * @param table base table (256 entries)
+	 * @return tables[SLICES][256], tables[0] is base table
+	 */
+	static int[][] tablesNormal8(final int[] table) {
+		final int[][] t = new int[SLICES][];
+		t[0] = table;
+		for (int k = 1; k < SLICES; k++) {
+			t[k] = new int[256];
+			for (int i = 0; i < 256; i++) {
+				t[k][i] = table[t[k - 1][i]];
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Generate slicing tables for a normal (MSB first) 32 bits CRC
+	 *
+	 * @param table base table (256 entries)
+	 * @return tables[SLICES][256], tables[0] is base table
+	 */
+	static int[][] tablesNormal32(final int[] table) {
+		final int[][] t = new int[SLICES][];
+		t[0] = table;
+		for (int k = 1; k < SLICES; k++) {
+			t[k] = new int[256];
+			for (int i = 0; i < 256; i++) {
+				final int c = t[k - 1][i];
+				t[k][i] = (c << 8) ^ table[c >>> 24];
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Generate slicing tables for a reflected (LSB first) 32 bits CRC
+	 *
+	 * @param table base table (256 entries)
+	 * @return tables[SLICES][256], tables[0] is base table
+	 */
+	static int[][] tablesReflected32(final int[] table) {
+		final int[][] t = new int[SLICES][];
+		t[0] = table;
+		for (int k = 1; k < SLICES; k++) {
+			t[k] = new int[256];
+			for (int i = 0; i < 256; i++) {
+				final int c = t[k - 1][i];
+				t[k][i] = (c >>> 8) ^ table[c & 0xFF];
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Generate slicing tables for a normal (MSB first) 64 bits CRC
+	 *
+	 * @param table base table (256 entries)
+	 * @return tables[SLICES][256], tables[0] is base table
+	 */
+	static long[][] tablesNormal64(final long[] table) {
+		final long[][] t = new long[SLICES][];
+		t[0] = table;
+		for (int k = 1; k < SLICES; k++) {
+			t[k] = new long[256];
+			for (int i = 0; i < 256; i++) {
+				final long c = t[k - 1][i];
+				t[k][i] = (c << 8) ^ table[(int) (c >>> 56)];
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Generate slicing tables for a reflected (LSB first) 64 bits CRC
+	 *
+	 * @param table base table (256 entries)
+	 * @return tables[SLICES][256], tables[0] is base table
+	 */
+	static long[][] tablesReflected64(final long[] table) {
+		final long[][] t = new long[SLICES][];
+		t[0] = table;
+		for (int k = 1; k < SLICES; k++) {
+			t[k] = new long[256];
+			for (int i = 0; i < 256; i++) {
+				final long c = t[k - 1][i];
+				t[k][i] = (c >>> 8) ^ table[(int) c & 0xFF];
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Update normal 8 bits CRC register
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateNormal8(int crc, final int[][] t, final byte[] buf, int off, int len) {
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		while (len >= SLICES) {
+			crc = t7[(crc ^ buf[off]) & 0xFF] ^ t6[buf[off + 1] & 0xFF] //
+					^ t5[buf[off + 2] & 0xFF] ^ t4[buf[off + 3] & 0xFF] //
+					^ t3[buf[off + 4] & 0xFF] ^ t2[buf[off + 5] & 0xFF] //
+					^ t1[buf[off + 6] & 0xFF] ^ t0[buf[off + 7] & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = t0[(crc ^ buf[off++]) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update reflected 32 bits CRC register
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateReflected32(int crc, final int[][] t, final byte[] buf, int off, int len) {
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		while (len >= SLICES) {
+			crc ^= (buf[off] & 0xFF) | ((buf[off + 1] & 0xFF) << 8) //
+					| ((buf[off + 2] & 0xFF) << 16) | ((buf[off + 3] & 0xFF) << 24);
+			crc = t7[crc & 0xFF] ^ t6[(crc >>> 8) & 0xFF] //
+					^ t5[(crc >>> 16) & 0xFF] ^ t4[crc >>> 24] //
+					^ t3[buf[off + 4] & 0xFF] ^ t2[buf[off + 5] & 0xFF] //
+					^ t1[buf[off + 6] & 0xFF] ^ t0[buf[off + 7] & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc >>> 8) ^ t0[(crc ^ buf[off++]) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update normal 32 bits CRC register
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateNormal32(int crc, final int[][] t, final byte[] buf, int off, int len) {
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		while (len >= SLICES) {
+			crc ^= ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16) //
+					| ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+			crc = t7[crc >>> 24] ^ t6[(crc >>> 16) & 0xFF] //
+					^ t5[(crc >>> 8) & 0xFF] ^ t4[crc & 0xFF] //
+					^ t3[buf[off + 4] & 0xFF] ^ t2[buf[off + 5] & 0xFF] //
+					^ t1[buf[off + 6] & 0xFF] ^ t0[buf[off + 7] & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc << 8) ^ t0[((crc >>> 24) ^ buf[off++]) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update normal 64 bits CRC register
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static long updateNormal64(long crc, final long[][] t, final byte[] buf, int off, int len) {
+		final long[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final long[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		while (len >= SLICES) {
+			crc ^= ((long) (buf[off] & 0xFF) << 56) | ((long) (buf[off + 1] & 0xFF) << 48) //
+					| ((long) (buf[off + 2] & 0xFF) << 40) | ((long) (buf[off + 3] & 0xFF) << 32) //
+					| ((long) (buf[off + 4] & 0xFF) << 24) | ((buf[off + 5] & 0xFF) << 16) //
+					| ((buf[off + 6] & 0xFF) << 8) | (buf[off + 7] & 0xFF);
+			crc = t7[(int) (crc >>> 56)] ^ t6[(int) (crc >>> 48) & 0xFF] //
+					^ t5[(int) (crc >>> 40) & 0xFF] ^ t4[(int) (crc >>> 32) & 0xFF] //
+					^ t3[(int) (crc >>> 24) & 0xFF] ^ t2[(int) (crc >>> 16) & 0xFF] //
+					^ t1[(int) (crc >>> 8) & 0xFF] ^ t0[(int) crc & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = t0[((int) (crc >>> 56) ^ buf[off++]) & 0xFF] ^ (crc << 8);
+		}
+		return crc;
+	}
+
+	/**
+	 * Update reflected 64 bits CRC register
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off offset in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static long updateReflected64(long crc, final long[][] t, final byte[] buf, int off, int len) {
+		final long[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final long[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		while (len >= SLICES) {
+			crc ^= (buf[off] & 0xFF) | ((buf[off + 1] & 0xFF) << 8) //
+					| ((buf[off + 2] & 0xFF) << 16) | ((long) (buf[off + 3] & 0xFF) << 24) //
+					| ((long) (buf[off + 4] & 0xFF) << 32) | ((long) (buf[off + 5] & 0xFF) << 40) //
+					| ((long) (buf[off + 6] & 0xFF) << 48) | ((long) (buf[off + 7] & 0xFF) << 56);
+			crc = t7[(int) crc & 0xFF] ^ t6[(int) (crc >>> 8) & 0xFF] //
+					^ t5[(int) (crc >>> 16) & 0xFF] ^ t4[(int) (crc >>> 24) & 0xFF] //
+					^ t3[(int) (crc >>> 32) & 0xFF] ^ t2[(int) (crc >>> 40) & 0xFF] //
+					^ t1[(int) (crc >>> 48) & 0xFF] ^ t0[(int) (crc >>> 56)];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc >>> 8) ^ t0[((int) crc ^ buf[off++]) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update normal 8 bits CRC register (absolute reads, position is not modified)
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off absolute index in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateNormal8(int crc, final int[][] t, final ByteBuffer buf, int off, int len) {
+		if (buf.hasArray()) {
+			return updateNormal8(crc, t, buf.array(), buf.arrayOffset() + off, len);
+		}
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		final boolean swap = (buf.order() != ByteOrder.BIG_ENDIAN);
+		while (len >= SLICES) {
+			long w = buf.getLong(off);
+			if (swap)
+				w = Long.reverseBytes(w);
+			crc = t7[(crc ^ (int) (w >>> 56)) & 0xFF] ^ t6[(int) (w >>> 48) & 0xFF] //
+					^ t5[(int) (w >>> 40) & 0xFF] ^ t4[(int) (w >>> 32) & 0xFF] //
+					^ t3[(int) (w >>> 24) & 0xFF] ^ t2[(int) (w >>> 16) & 0xFF] //
+					^ t1[(int) (w >>> 8) & 0xFF] ^ t0[(int) w & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = t0[(crc ^ buf.get(off++)) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update reflected 32 bits CRC register (absolute reads, position is not modified)
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off absolute index in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateReflected32(int crc, final int[][] t, final ByteBuffer buf, int off, int len) {
+		if (buf.hasArray()) {
+			return updateReflected32(crc, t, buf.array(), buf.arrayOffset() + off, len);
+		}
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		final boolean swap = (buf.order() != ByteOrder.LITTLE_ENDIAN);
+		while (len >= SLICES) {
+			long w = buf.getLong(off);
+			if (swap)
+				w = Long.reverseBytes(w);
+			crc ^= (int) w;
+			final int hi = (int) (w >>> 32);
+			crc = t7[crc & 0xFF] ^ t6[(crc >>> 8) & 0xFF] //
+					^ t5[(crc >>> 16) & 0xFF] ^ t4[crc >>> 24] //
+					^ t3[hi & 0xFF] ^ t2[(hi >>> 8) & 0xFF] //
+					^ t1[(hi >>> 16) & 0xFF] ^ t0[hi >>> 24];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc >>> 8) ^ t0[(crc ^ buf.get(off++)) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update normal 32 bits CRC register (absolute reads, position is not modified)
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off absolute index in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static int updateNormal32(int crc, final int[][] t, final ByteBuffer buf, int off, int len) {
+		if (buf.hasArray()) {
+			return updateNormal32(crc, t, buf.array(), buf.arrayOffset() + off, len);
+		}
+		final int[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final int[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		final boolean swap = (buf.order() != ByteOrder.BIG_ENDIAN);
+		while (len >= SLICES) {
+			long w = buf.getLong(off);
+			if (swap)
+				w = Long.reverseBytes(w);
+			crc ^= (int) (w >>> 32);
+			final int lo = (int) w;
+			crc = t7[crc >>> 24] ^ t6[(crc >>> 16) & 0xFF] //
+					^ t5[(crc >>> 8) & 0xFF] ^ t4[crc & 0xFF] //
+					^ t3[lo >>> 24] ^ t2[(lo >>> 16) & 0xFF] //
+					^ t1[(lo >>> 8) & 0xFF] ^ t0[lo & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc << 8) ^ t0[((crc >>> 24) ^ buf.get(off++)) & 0xFF];
+		}
+		return crc;
+	}
+
+	/**
+	 * Update normal 64 bits CRC register (absolute reads, position is not modified)
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off absolute index in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static long updateNormal64(long crc, final long[][] t, final ByteBuffer buf, int off, int len) {
+		if (buf.hasArray()) {
+			return updateNormal64(crc, t, buf.array(), buf.arrayOffset() + off, len);
+		}
+		final long[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final long[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		final boolean swap = (buf.order() != ByteOrder.BIG_ENDIAN);
+		while (len >= SLICES) {
+			long w = buf.getLong(off);
+			if (swap)
+				w = Long.reverseBytes(w);
+			crc ^= w;
+			crc = t7[(int) (crc >>> 56)] ^ t6[(int) (crc >>> 48) & 0xFF] //
+					^ t5[(int) (crc >>> 40) & 0xFF] ^ t4[(int) (crc >>> 32) & 0xFF] //
+					^ t3[(int) (crc >>> 24) & 0xFF] ^ t2[(int) (crc >>> 16) & 0xFF] //
+					^ t1[(int) (crc >>> 8) & 0xFF] ^ t0[(int) crc & 0xFF];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = t0[((int) (crc >>> 56) ^ buf.get(off++)) & 0xFF] ^ (crc << 8);
+		}
+		return crc;
+	}
+
+	/**
+	 * Update reflected 64 bits CRC register (absolute reads, position is not modified)
+	 *
+	 * @param crc current register
+	 * @param t slicing tables
+	 * @param buf input
+	 * @param off absolute index in input
+	 * @param len length of input
+	 * @return new register
+	 */
+	static long updateReflected64(long crc, final long[][] t, final ByteBuffer buf, int off, int len) {
+		if (buf.hasArray()) {
+			return updateReflected64(crc, t, buf.array(), buf.arrayOffset() + off, len);
+		}
+		final long[] t0 = t[0], t1 = t[1], t2 = t[2], t3 = t[3];
+		final long[] t4 = t[4], t5 = t[5], t6 = t[6], t7 = t[7];
+		final boolean swap = (buf.order() != ByteOrder.LITTLE_ENDIAN);
+		while (len >= SLICES) {
+			long w = buf.getLong(off);
+			if (swap)
+				w = Long.reverseBytes(w);
+			crc ^= w;
+			crc = t7[(int) crc & 0xFF] ^ t6[(int) (crc >>> 8) & 0xFF] //
+					^ t5[(int) (crc >>> 16) & 0xFF] ^ t4[(int) (crc >>> 24) & 0xFF] //
+					^ t3[(int) (crc >>> 32) & 0xFF] ^ t2[(int) (crc >>> 40) & 0xFF] //
+					^ t1[(int) (crc >>> 48) & 0xFF] ^ t0[(int) (crc >>> 56)];
+			off += SLICES;
+			len -= SLICES;
+		}
+		while (len-- > 0) {
+			crc = (crc >>> 8) ^ t0[((int) crc ^ buf.get(off++)) & 0xFF];
+		}
+		return crc;
+	}
+}
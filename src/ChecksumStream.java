@@ -0,0 +1,246 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.Checksum;
+
+/**
+ * The ChecksumStream computes a Checksum (CRC8, CRC32, CRC32C, CRC64, CRC...) of the data while it is
+ * transferred through a specified InputStream/OutputStream/Channel. It is implemented as a wrapper for another
+ * InputStream/OutputStream/Channel instance, data is not buffered nor copied.
+ */
+public class ChecksumStream {
+	public static ChecksumInputStream createChecksumInputStream(final InputStream in, final Checksum checksum) {
+		return new ChecksumInputStream(in, checksum);
+	}
+
+	public static ChecksumOutputStream createChecksumOutputStream(final OutputStream out,
+			final Checksum checksum) {
+		return new ChecksumOutputStream(out, checksum);
+	}
+
+	public static ChecksumReadableByteChannel createChecksumReadableByteChannel(final ReadableByteChannel in,
+			final Checksum checksum) {
+		return new ChecksumReadableByteChannel(in, checksum);
+	}
+
+	public static ChecksumWritableByteChannel createChecksumWritableByteChannel(final WritableByteChannel out,
+			final Checksum checksum) {
+		return new ChecksumWritableByteChannel(out, checksum);
+	}
+
+	/**
+	 * Update checksum with bytes in range [from, to) of buffer, limit is restored and position is set to
+	 * "to" (no copy, no allocation)
+	 */
+	static void update(final Checksum checksum, final ByteBuffer buf, final int from, final int to) {
+		if (to <= from)
+			return;
+		final int limit = buf.limit();
+		buf.limit(to).position(from);
+		checksum.update(buf);
+		buf.limit(limit).position(to);
+	}
+
+	public static class ChecksumInputStream extends FilterInputStream {
+		final Checksum checksum;
+		byte[] skipBuffer = null;
+
+		public ChecksumInputStream(final InputStream in, final Checksum checksum) {
+			super(in);
+			this.checksum = checksum;
+		}
+
+		public Checksum getChecksum() {
+			return checksum;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = in.read();
+			if (b != -1)
+				checksum.update(b);
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b) throws IOException {
+			return read(b, 0, b.length);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int read = in.read(b, off, len);
+			if (read > 0)
+				checksum.update(b, off, read);
+			return read;
+		}
+
+		/**
+		 * Skipped bytes are read (and checksummed)
+		 */
+		@Override
+		public long skip(final long n) throws IOException {
+			if (skipBuffer == null)
+				skipBuffer = new byte[512];
+			long total = 0;
+			while (total < n) {
+				final int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, n - total));
+				if (read < 0)
+					break;
+				total += read;
+			}
+			return total;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public synchronized void mark(final int readlimit) {
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+	}
+
+	public static class ChecksumOutputStream extends FilterOutputStream {
+		final Checksum checksum;
+
+		public ChecksumOutputStream(final OutputStream out, final Checksum checksum) {
+			super(out);
+			this.checksum = checksum;
+		}
+
+		public Checksum getChecksum() {
+			return checksum;
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			out.write(b);
+			checksum.update(b);
+		}
+
+		@Override
+		public void write(final byte[] b) throws IOException {
+			write(b, 0, b.length);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			out.write(b, off, len);
+			checksum.update(b, off, len);
+		}
+	}
+
+	public static class ChecksumReadableByteChannel implements ReadableByteChannel {
+		final ReadableByteChannel in;
+		final Checksum checksum;
+
+		public ChecksumReadableByteChannel(final ReadableByteChannel in, final Checksum checksum) {
+			this.in = in;
+			this.checksum = checksum;
+		}
+
+		public Checksum getChecksum() {
+			return checksum;
+		}
+
+		@Override
+		public int read(final ByteBuffer dst) throws IOException {
+			final int pos = dst.position();
+			final int read = in.read(dst);
+			update(checksum, dst, pos, dst.position());
+			return read;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return in.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	public static class ChecksumWritableByteChannel implements WritableByteChannel {
+		final WritableByteChannel out;
+		final Checksum checksum;
+
+		public ChecksumWritableByteChannel(final WritableByteChannel out, final Checksum checksum) {
+			this.out = out;
+			this.checksum = checksum;
+		}
+
+		public Checksum getChecksum() {
+			return checksum;
+		}
+
+		@Override
+		public int write(final ByteBuffer src) throws IOException {
+			final int pos = src.position();
+			final int written = out.write(src);
+			update(checksum, src, pos, src.position());
+			return written;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return out.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 */
+	public static void main(final String[] args) throws Throwable {
+		final byte[] data = "hello world".getBytes();
+		final CRC32C ref = new CRC32C();
+		ref.update(data);
+		// OutputStream
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final ChecksumOutputStream out = createChecksumOutputStream(bos, new CRC32C());
+		out.write(data, 0, 5);
+		out.write(data[5]);
+		out.write(data, 6, data.length - 6);
+		out.close();
+		System.out.println(Long.toHexString(ref.getValue()) + "=" + Long.toHexString(out.getChecksum().getValue()));
+		// InputStream
+		final ChecksumInputStream in = createChecksumInputStream(new ByteArrayInputStream(data), new CRC32C());
+		in.skip(3);
+		while (in.read() != -1)
+			;
+		in.close();
+		System.out.println(Long.toHexString(ref.getValue()) + "=" + Long.toHexString(in.getChecksum().getValue()));
+		// Channel
+		final ChecksumWritableByteChannel ch = createChecksumWritableByteChannel(
+				Channels.newChannel(new ByteArrayOutputStream()), new CRC32C());
+		final ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+		bb.put(data).flip();
+		while (bb.hasRemaining())
+			ch.write(bb);
+		ch.close();
+		System.out.println(Long.toHexString(ref.getValue()) + "=" + Long.toHexString(ch.getChecksum().getValue()));
+	}
+}
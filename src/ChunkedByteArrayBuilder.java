@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * A mutable sequence of bytes stored in a chain of fixed-size chunks (rope). This class provides an API
+ * similar to {@link ByteArrayBuilder} but growing never copies the existing bytes, and no big contiguous
+ * array is allocated (large arrays are humongous objects for G1).
+ *
+ * The content can be written with {@link #writeTo(OutputStream)} or with gathering I/O
+ * {@link #writeTo(GatheringByteChannel)} without joining chunks in a single array.
+ *
+ * Instances of ChunkedByteArrayBuilder are not safe for use by multiple threads.
+ */
+public final class ChunkedByteArrayBuilder {
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private final int chunkShift;
+	private final int chunkMask;
+	private byte[][] chunks = new byte[16][];
+	// Number of chunks in use (chunkCount <= allocatedCount)
+	private int chunkCount = 0;
+	// Number of allocated chunks (retained after reset)
+	private int allocatedCount = 0;
+	private int length;
+
+	/**
+	 * Constructs a builder with no bytes in it and chunks of 64KB.
+	 */
+	public ChunkedByteArrayBuilder() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructs a builder with no bytes in it and chunks of specified size (rounded up to power of 2).
+	 *
+	 * @param chunkSize
+	 */
+	public ChunkedByteArrayBuilder(final int chunkSize) {
+		if ((chunkSize < 1) || (chunkSize > (1 << 30)))
+			throw new IllegalArgumentException("Invalid chunkSize: " + chunkSize);
+		this.chunkShift = 32 - Integer.numberOfLeadingZeros(chunkSize - 1);
+		this.chunkMask = (1 << chunkShift) - 1;
+	}
+
+	/**
+	 * Appends the byte (converted from int) to the sequence.
+	 *
+	 * @param b
+	 * @return
+	 */
+	public ChunkedByteArrayBuilder append(final int b) {
+		return append((byte) (b & 0xFF));
+	}
+
+	/**
+	 * Appends the byte to the sequence.
+	 *
+	 * @param b
+	 * @return
+	 */
+	public ChunkedByteArrayBuilder append(final byte b) {
+		final int c = (length >>> chunkShift);
+		if (c == chunkCount)
+			addChunk();
+		chunks[c][length & chunkMask] = b;
+		length++;
+		return this;
+	}
+
+	/**
+	 * Appends the bytes to the sequence.
+	 *
+	 * @param data
+	 * @return
+	 */
+	public ChunkedByteArrayBuilder append(final byte[] data) {
+		return append(data, 0, data.length);
+	}
+
+	/**
+	 * Appends the bytes to the sequence.
+	 *
+	 * @param bb
+	 * @param offset
+	 * @param len
+	 * @return
+	 */
+	public ChunkedByteArrayBuilder append(final byte[] bb, int offset, int len) {
+		if ((offset < 0) || (len < 0) || (offset > bb.length - len))
+			throw new IndexOutOfBoundsException();
+		if (len > (Integer.MAX_VALUE - length))
+			throw new OutOfMemoryError("Required size too large");
+		while (len > 0) {
+			final int c = (length >>> chunkShift);
+			if (c == chunkCount)
+				addChunk();
+			final int pos = (length & chunkMask);
+			final int n = Math.min(len, (chunkMask + 1) - pos);
+			System.arraycopy(bb, offset, chunks[c], pos, n);
+			length += n;
+			offset += n;
+			len -= n;
+		}
+		return this;
+	}
+
+	private final void addChunk() {
+		if (chunkCount == chunks.length)
+			chunks = Arrays.copyOf(chunks, chunkCount << 1); // only references are copied
+		if (chunkCount == allocatedCount) { // else retained after reset
+			chunks[chunkCount] = new byte[chunkMask + 1];
+			allocatedCount++;
+		}
+		chunkCount++;
+	}
+
+	/**
+	 * Returns the byte value at the specified index. An index ranges from zero to length() - 1.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public byte byteAt(final int index) {
+		if ((index < 0) || (index >= length))
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + length);
+		return chunks[index >>> chunkShift][index & chunkMask];
+	}
+
+	/**
+	 * Return a new allocated byte array (joining all chunks)
+	 */
+	public byte[] toByteArray() {
+		final byte[] newbuf = new byte[length];
+		final int full = (length >>> chunkShift);
+		final int chunkSize = (chunkMask + 1);
+		for (int c = 0; c < full; c++) {
+			System.arraycopy(chunks[c], 0, newbuf, c << chunkShift, chunkSize);
+		}
+		final int tail = (length & chunkMask);
+		if (tail > 0)
+			System.arraycopy(chunks[full], 0, newbuf, full << chunkShift, tail);
+		return newbuf;
+	}
+
+	/**
+	 * Write all bytes to OutputStream (chunk by chunk)
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(final OutputStream out) throws IOException {
+		int remaining = length;
+		for (int c = 0; remaining > 0; c++) {
+			final int n = Math.min(remaining, chunkMask + 1);
+			out.write(chunks[c], 0, n);
+			remaining -= n;
+		}
+	}
+
+	/**
+	 * Write all bytes to channel with gathering I/O (chunks are not joined). For non-blocking channels this
+	 * method spins until all bytes are written.
+	 *
+	 * @param out
+	 * @return number of bytes written
+	 * @throws IOException
+	 */
+	public long writeTo(final GatheringByteChannel out) throws IOException {
+		final int count = (int) (((long) length + chunkMask) >>> chunkShift);
+		final ByteBuffer[] srcs = new ByteBuffer[count];
+		for (int c = 0; c < count; c++) {
+			final int n = Math.min(length - (c << chunkShift), chunkMask + 1);
+			srcs[c] = ByteBuffer.wrap(chunks[c], 0, n);
+		}
+		long written = 0;
+		int offset = 0;
+		while (written < length) {
+			written += out.write(srcs, offset, count - offset);
+			while ((offset < count) && !srcs[offset].hasRemaining()) {
+				offset++;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Clears the sequence (length is set to zero), allocated chunks are retained.
+	 *
+	 * @return
+	 */
+	public ChunkedByteArrayBuilder reset() {
+		length = 0;
+		chunkCount = 0;
+		return this;
+	}
+
+	/**
+	 * Returns the current capacity (allocated chunks, including chunks retained after reset).
+	 */
+	public long capacity() {
+		return ((long) allocatedCount << chunkShift);
+	}
+
+	/**
+	 * Returns the size of chunks.
+	 */
+	public int chunkSize() {
+		return (chunkMask + 1);
+	}
+
+	/**
+	 * Returns the length (byte count).
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Constructs a new String by decoding the bytes using the platform's default charset.
+	 */
+	public String toString() {
+		return new String(toByteArray());
+	}
+
+	public static void main(String[] args) throws Throwable {
+		final ChunkedByteArrayBuilder cb = new ChunkedByteArrayBuilder(4);
+		cb.append('t').append("est chunked".getBytes()).append('!');
+		System.out.println(cb.capacity() + " " + cb.length() + " " + cb.toString() + " " + (char) cb.byteAt(5));
+		// OutputStream
+		final java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+		cb.writeTo(bos);
+		System.out.println(bos.toString());
+		// Gathering channel
+		final java.io.File file = java.io.File.createTempFile("chunked", ".tmp");
+		file.deleteOnExit();
+		try (final java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+			System.out.println(cb.writeTo(raf.getChannel()) + " " + raf.length());
+		}
+		cb.reset().append("reuse".getBytes());
+		System.out.println(cb.capacity() + " " + cb.length() + " " + cb.toString());
+	}
+}
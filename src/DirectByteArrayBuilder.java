@@ -0,0 +1,552 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A mutable sequence of bytes stored off-heap in a direct ByteBuffer. This class provides the append API
+ * of {@link ByteArrayBuilder}, and the content can be handed to
+ * {@link java.nio.channels.SocketChannel#write(ByteBuffer)} with {@link #asReadOnlyByteBuffer()} without
+ * copying it to a temporary direct buffer.
+ *
+ * If the internal buffer overflows, a new direct buffer with double size (power of 2) is allocated. Direct
+ * memory of discarded buffers is reclaimed by GC, so builders should be reused through a {@link Pool}
+ * (acquire, release) in hot paths.
+ *
+ * Instances of DirectByteArrayBuilder are not safe for use by multiple threads.
+ */
+public final class DirectByteArrayBuilder {
+	public static final int INITIAL_SIZE = 4096;
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+	// position is the length of the sequence, limit is the capacity (big-endian)
+	private ByteBuffer buf;
+	private Pool pool;
+
+	/**
+	 * Constructs a builder with no bytes in it and an initial capacity of 4096 bytes.
+	 */
+	public DirectByteArrayBuilder() {
+		this(INITIAL_SIZE);
+	}
+
+	/**
+	 * Constructs a builder with no bytes in it and an initial capacity specified by the capacity argument.
+	 *
+	 * @param capacity
+	 */
+	public DirectByteArrayBuilder(final int capacity) {
+		this.buf = ByteBuffer.allocateDirect(capacity);
+	}
+
+	/**
+	 * Appends the byte (converted from int) to the sequence.
+	 *
+	 * @param b
+	 * @return
+	 */
+	public DirectByteArrayBuilder append(final int b) {
+		return append((byte) (b & 0xFF));
+	}
+
+	/**
+	 * Appends the byte to the sequence.
+	 *
+	 * @param b
+	 * @return
+	 */
+	public DirectByteArrayBuilder append(final byte b) {
+		ensureCapacityInternal(1);
+		buf.put(b);
+		return this;
+	}
+
+	/**
+	 * Appends the bytes to the sequence.
+	 *
+	 * @param data
+	 * @return
+	 */
+	public DirectByteArrayBuilder append(final byte[] data) {
+		return append(data, 0, data.length);
+	}
+
+	/**
+	 * Appends the bytes to the sequence.
+	 *
+	 * @param bb
+	 * @param offset
+	 * @param len
+	 * @return
+	 */
+	public DirectByteArrayBuilder append(final byte[] bb, final int offset, final int len) {
+		ensureCapacityInternal(len);
+		buf.put(bb, offset, len);
+		return this;
+	}
+
+	/**
+	 * Appends the remaining bytes of buffer to the sequence (position of src is advanced to limit).
+	 *
+	 * @param src
+	 * @return
+	 */
+	public DirectByteArrayBuilder append(final ByteBuffer src) {
+		ensureCapacityInternal(src.remaining());
+		buf.put(src);
+		return this;
+	}
+
+	/**
+	 * Appends the short (big-endian, 2 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendShortBE(final int v) {
+		ensureCapacityInternal(2);
+		buf.putShort((short) v);
+		return this;
+	}
+
+	/**
+	 * Appends the short (little-endian, 2 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendShortLE(final int v) {
+		ensureCapacityInternal(2);
+		buf.putShort(Short.reverseBytes((short) v));
+		return this;
+	}
+
+	/**
+	 * Appends the int (big-endian, 4 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendIntBE(final int v) {
+		ensureCapacityInternal(4);
+		buf.putInt(v);
+		return this;
+	}
+
+	/**
+	 * Appends the int (little-endian, 4 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendIntLE(final int v) {
+		ensureCapacityInternal(4);
+		buf.putInt(Integer.reverseBytes(v));
+		return this;
+	}
+
+	/**
+	 * Appends the long (big-endian, 8 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendLongBE(final long v) {
+		ensureCapacityInternal(8);
+		buf.putLong(v);
+		return this;
+	}
+
+	/**
+	 * Appends the long (little-endian, 8 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendLongLE(final long v) {
+		ensureCapacityInternal(8);
+		buf.putLong(Long.reverseBytes(v));
+		return this;
+	}
+
+	/**
+	 * Appends the int as unsigned varint (LEB128, 1-5 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendVarInt(int v) {
+		ensureCapacityInternal(ByteEncoding.MAX_VARINT_LENGTH);
+		final ByteBuffer b = buf;
+		while ((v & ~0x7F) != 0) {
+			b.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		b.put((byte) v);
+		return this;
+	}
+
+	/**
+	 * Appends the long as unsigned varint (LEB128, 1-10 bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendVarLong(long v) {
+		ensureCapacityInternal(ByteEncoding.MAX_VARLONG_LENGTH);
+		final ByteBuffer b = buf;
+		while ((v & ~0x7FL) != 0) {
+			b.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		b.put((byte) v);
+		return this;
+	}
+
+	/**
+	 * Appends the signed int as ZigZag varint (small absolute values use few bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendZigZag(final int v) {
+		return appendVarInt(ByteEncoding.zigZag(v));
+	}
+
+	/**
+	 * Appends the signed long as ZigZag varint (small absolute values use few bytes) to the sequence.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendZigZag(final long v) {
+		return appendVarLong(ByteEncoding.zigZag(v));
+	}
+
+	/**
+	 * Appends the chars encoded in UTF-8 to the sequence, without intermediate arrays (malformed surrogates
+	 * are replaced with '?', like {@link String#getBytes(java.nio.charset.Charset)}).
+	 *
+	 * @param s
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendUtf8(final CharSequence s) {
+		final int len = s.length();
+		ensureCapacityInternal(len);
+		ByteBuffer b = buf;
+		for (int i = 0; i < len; i++) {
+			final char c = s.charAt(i);
+			if (c < 0x80) {
+				b.put((byte) c);
+				continue;
+			}
+			// Room for this char (4 bytes max) and rest of chars as ASCII
+			if (b.remaining() < (4 + len - i)) {
+				ensureCapacityInternal(4 + len - i);
+				b = buf;
+			}
+			if (c < 0x800) {
+				b.put((byte) (0xC0 | (c >> 6)));
+				b.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				final char d = ((i + 1) < len ? s.charAt(i + 1) : 0);
+				if (Character.isHighSurrogate(c) && Character.isLowSurrogate(d)) {
+					final int cp = Character.toCodePoint(c, d);
+					b.put((byte) (0xF0 | (cp >> 18)));
+					b.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+					b.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+					b.put((byte) (0x80 | (cp & 0x3F)));
+					i++;
+				} else {
+					b.put((byte) '?');
+				}
+			} else {
+				b.put((byte) (0xE0 | (c >> 12)));
+				b.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				b.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the chars as ASCII (one byte per char, non-ASCII chars are replaced with '?') to the
+	 * sequence.
+	 *
+	 * @param s
+	 * @return
+	 */
+	public DirectByteArrayBuilder appendAscii(final CharSequence s) {
+		final int len = s.length();
+		ensureCapacityInternal(len);
+		final ByteBuffer b = buf;
+		for (int i = 0; i < len; i++) {
+			final char c = s.charAt(i);
+			b.put((byte) ((c < 0x80) ? c : '?'));
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the short (big-endian, 2 bytes) at the specified index (index + 2 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putShortBE(final int index, final int v) {
+		checkIndex(index, 2);
+		buf.putShort(index, (short) v);
+		return this;
+	}
+
+	/**
+	 * Writes the short (little-endian, 2 bytes) at the specified index (index + 2 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putShortLE(final int index, final int v) {
+		checkIndex(index, 2);
+		buf.putShort(index, Short.reverseBytes((short) v));
+		return this;
+	}
+
+	/**
+	 * Writes the int (big-endian, 4 bytes) at the specified index (index + 4 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putIntBE(final int index, final int v) {
+		checkIndex(index, 4);
+		buf.putInt(index, v);
+		return this;
+	}
+
+	/**
+	 * Writes the int (little-endian, 4 bytes) at the specified index (index + 4 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putIntLE(final int index, final int v) {
+		checkIndex(index, 4);
+		buf.putInt(index, Integer.reverseBytes(v));
+		return this;
+	}
+
+	/**
+	 * Writes the long (big-endian, 8 bytes) at the specified index (index + 8 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putLongBE(final int index, final long v) {
+		checkIndex(index, 8);
+		buf.putLong(index, v);
+		return this;
+	}
+
+	/**
+	 * Writes the long (little-endian, 8 bytes) at the specified index (index + 8 must not exceed length).
+	 *
+	 * @param index
+	 * @param v
+	 * @return
+	 */
+	public DirectByteArrayBuilder putLongLE(final int index, final long v) {
+		checkIndex(index, 8);
+		buf.putLong(index, Long.reverseBytes(v));
+		return this;
+	}
+
+	private final void checkIndex(final int index, final int size) {
+		final int length = buf.position();
+		if ((index < 0) || (index > (length - size)))
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + size + " length=" + length);
+	}
+
+	/**
+	 * Returns the byte value at the specified index. An index ranges from zero to length() - 1.
+	 *
+	 * @param index
+	 * @return
+	 */
+	public byte byteAt(final int index) {
+		if (index >= buf.position())
+			throw new IndexOutOfBoundsException("index=" + index + " length=" + buf.position());
+		return buf.get(index);
+	}
+
+	/**
+	 * Returns a read-only view of the sequence (position zero, limit length), no bytes are copied. The view is
+	 * valid until the builder grows, is reset or is released.
+	 *
+	 * @return
+	 */
+	public ByteBuffer asReadOnlyByteBuffer() {
+		final ByteBuffer view = buf.duplicate();
+		view.flip();
+		return view.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Return a new allocated (heap) byte array
+	 */
+	public byte[] toByteArray() {
+		final byte[] newbuf = new byte[buf.position()];
+		asReadOnlyByteBuffer().get(newbuf);
+		return newbuf;
+	}
+
+	/**
+	 * Returns the current capacity.
+	 */
+	public int capacity() {
+		return buf.capacity();
+	}
+
+	/**
+	 * Returns the length (byte count).
+	 */
+	public int length() {
+		return buf.position();
+	}
+
+	/**
+	 * Ensures that the capacity is at least equal to the specified minimum.
+	 *
+	 * @param minimumCapacity
+	 */
+	public void ensureCapacity(final int minimumCapacity) {
+		if (minimumCapacity > buf.capacity()) {
+			resize(newCapacity(minimumCapacity));
+		}
+	}
+
+	/**
+	 * Ensures room for len more bytes (overflow-safe)
+	 *
+	 * @param len
+	 */
+	private final void ensureCapacityInternal(final int len) {
+		if (len > buf.remaining()) {
+			final int minCapacity = buf.position() + len;
+			if (minCapacity < 0) // overflow
+				throw new OutOfMemoryError("Required buffer size too large");
+			resize(newCapacity(minCapacity));
+		}
+	}
+
+	/**
+	 * Returns next power of two greater than minCapacity, capped to max buffer size
+	 *
+	 * @param minCapacity (positive)
+	 * @return
+	 */
+	private static final int newCapacity(final int minCapacity) {
+		if (minCapacity >= (1 << 30)) // next power of two would overflow
+			return Math.max(minCapacity, MAX_BUFFER_SIZE);
+		return (Integer.highestOneBit(minCapacity) << 1);
+	}
+
+	private final void resize(final int newSize) {
+		final ByteBuffer newbuf = ByteBuffer.allocateDirect(newSize);
+		buf.flip();
+		newbuf.put(buf);
+		this.buf = newbuf;
+	}
+
+	/**
+	 * Clears the sequence (length is set to zero), capacity is retained.
+	 *
+	 * @return
+	 */
+	public DirectByteArrayBuilder reset() {
+		buf.clear();
+		return this;
+	}
+
+	/**
+	 * Returns this builder to the {@link Pool} it was acquired from, or drops the reference to the direct
+	 * buffer (memory is reclaimed by GC) for builders not acquired from a pool. The builder (and any view
+	 * from {@link #asReadOnlyByteBuffer()}) must not be used after release.
+	 */
+	public void release() {
+		final Pool p = pool;
+		if (p != null) {
+			pool = null;
+			p.release(this);
+		} else {
+			buf = null;
+		}
+	}
+
+	/**
+	 * Bounded pool of direct builders, safe for use by multiple threads. Builders are reset on release, and
+	 * builders that grew over the retained size cap are dropped (left to GC) instead of being pooled.
+	 */
+	public static final class Pool extends BuilderPool<DirectByteArrayBuilder> {
+		/**
+		 * Create pool
+		 *
+		 * @param maxPooled max number of idle builders retained
+		 * @param initialCapacity initial capacity of new builders
+		 * @param maxRetainedCapacity max capacity of a builder to be retained in pool
+		 */
+		public Pool(final int maxPooled, final int initialCapacity, final int maxRetainedCapacity) {
+			super(maxPooled, initialCapacity, maxRetainedCapacity);
+		}
+
+		@Override
+		DirectByteArrayBuilder newBuilder(final int capacity) {
+			return new DirectByteArrayBuilder(capacity);
+		}
+
+		@Override
+		void attach(final DirectByteArrayBuilder b) {
+			b.pool = this;
+		}
+
+		@Override
+		int capacity(final DirectByteArrayBuilder b) {
+			return b.buf.capacity();
+		}
+
+		@Override
+		void reset(final DirectByteArrayBuilder b) {
+			b.reset();
+		}
+
+		@Override
+		void drop(final DirectByteArrayBuilder b) {
+			b.buf = null;
+		}
+	}
+
+	public static void main(String[] args) throws Throwable {
+		final DirectByteArrayBuilder db = new DirectByteArrayBuilder(1);
+		db.appendIntBE(0).appendShortLE(0x0102).appendVarInt(300).appendZigZag(-2);
+		db.appendUtf8("a\u00f1\u20ac\ud83d\ude00").appendAscii("ok");
+		db.putIntBE(0, db.length());
+		System.out.println(db.capacity() + " " + db.length() + " " + SimpleHex.bytesAsHex(db.toByteArray()));
+		// Zero-copy handoff
+		final ByteBuffer view = db.asReadOnlyByteBuffer();
+		final java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+		final java.nio.channels.WritableByteChannel ch = java.nio.channels.Channels.newChannel(bos);
+		while (view.hasRemaining()) {
+			ch.write(view);
+		}
+		System.out.println(view.isDirect() + " " + view.isReadOnly() + " " + bos.size());
+		// Pool
+		final Pool pool = new Pool(4, 64, 1024);
+		final DirectByteArrayBuilder p1 = pool.acquire().append(new byte[100]);
+		p1.release();
+		final DirectByteArrayBuilder p2 = pool.acquire();
+		System.out.println((p1 == p2) + " " + p2.capacity() + " " + p2.length());
+		p2.release();
+		System.out.println(pool.size());
+	}
+}
@@ -1,9 +1,28 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
 /**
  * Encoding of MSISDN numbers
  * <p>
  * <a href="https://en.wikipedia.org/wiki/MSISDN">MSISDN</a>
  */
 public class EncoderMSISDN {
+	/**
+	 * Max chars of a decoded MSISDN
+	 */
+	public static final int MAX_CHARS = 19;
+	// Max digits of an encoded MSISDN (prefix digit + MAX_DIGITS fit in a positive long)
+	private static final int MAX_DIGITS = 18;
+	private static final int BUFFER_LENGTH = 4096;
+	private static final long[] POW10 = new long[19];
+
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
 
 	/**
 	 * Encode MSISDN in a Long
@@ -36,21 +55,141 @@ public class EncoderMSISDN {
 	 * @param msisdn
 	 * @return
 	 */
-	public static String fromLong(long msisdn) {
-		final int maxlen = 19;
-		char[] buf = new char[maxlen];
-		int i = buf.length - 1;
-		while (msisdn > 0) {
-			buf[i] = (char) ('0' + (msisdn % 10));
+	public static String fromLong(final long msisdn) {
+		final char[] buf = new char[MAX_CHARS];
+		return new String(buf, 0, fromLong(msisdn, buf, 0));
+	}
+
+	/**
+	 * Decode MSISDN from a Long into caller-supplied buffer (no allocation)
+	 * @param msisdn
+	 * @param buf output (with room for {@link #MAX_CHARS} chars)
+	 * @param off offset in output
+	 * @return number of chars written (0 if msisdn is not valid)
+	 */
+	public static int fromLong(long msisdn, final char[] buf, final int off) {
+		if (msisdn <= 0)
+			return 0;
+		int digits = 1;
+		while ((digits < POW10.length) && (msisdn >= POW10[digits])) {
+			digits++;
+		}
+		final int lead = (int) (msisdn / POW10[digits - 1]);
+		final int len = ((lead == 2) ? (digits - 1) : digits);
+		int i = off + len;
+		for (int k = 1; k < digits; k++) {
+			buf[--i] = (char) ('0' + (msisdn % 10));
 			msisdn /= 10;
-			i--;
 		}
-		if (buf[i + 1] == '1') {
-			buf[i + 1] = '+';
-		} else if (buf[i + 1] == '2') {
-			i++;
+		if (lead == 1) {
+			buf[--i] = '+';
+		} else if (lead != 2) {
+			buf[--i] = (char) ('0' + lead);
+		}
+		return len;
+	}
+
+	/**
+	 * Decode MSISDN from a Long and append to StringBuilder
+	 * @param msisdn
+	 * @param sb
+	 * @param buf temporary buffer (with room for {@link #MAX_CHARS} chars)
+	 * @return sb
+	 */
+	public static StringBuilder fromLong(final long msisdn, final StringBuilder sb, final char[] buf) {
+		return sb.append(buf, 0, fromLong(msisdn, buf, 0));
+	}
+
+	/**
+	 * Encode all MSISDN in a CSV or line stream (separated by whitespace, ',', ';' or '"') in a long array,
+	 * invalid numbers are ignored. Reader is not closed.
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static long[] toLongs(final Reader in) throws IOException {
+		final BatchParser parser = new BatchParser();
+		final char[] buf = new char[BUFFER_LENGTH];
+		int read;
+		while ((read = in.read(buf)) != -1) {
+			for (int i = 0; i < read; i++) {
+				parser.feed(buf[i]);
+			}
+		}
+		return parser.finish();
+	}
+
+	/**
+	 * Encode all MSISDN in a CSV or line text (separated by whitespace, ',', ';' or '"') in a long array,
+	 * invalid numbers are ignored.
+	 * @param text
+	 * @return
+	 */
+	public static long[] toLongs(final CharSequence text) {
+		final BatchParser parser = new BatchParser();
+		final int len = text.length();
+		for (int i = 0; i < len; i++) {
+			parser.feed(text.charAt(i));
+		}
+		return parser.finish();
+	}
+
+	/**
+	 * Streaming parser (char by char) with same encoding of {@link EncoderMSISDN#toLong(String)}, without
+	 * intermediate Strings
+	 */
+	private static final class BatchParser {
+		long[] values = new long[1024];
+		int size = 0;
+		long value = 0;
+		int digits = 0;
+		boolean inToken = false;
+		boolean invalid = false;
+
+		final void feed(final char c) {
+			if ((c <= ' ') || (c == ',') || (c == ';') || (c == '"')) {
+				endToken();
+			} else if ((c >= '0') && (c <= '9')) {
+				if (!inToken) {
+					inToken = true;
+					value = 2;
+				}
+				if (++digits > MAX_DIGITS) {
+					invalid = true;
+				} else {
+					value = (value * 10) + (c - '0');
+				}
+			} else if ((c == '+') && !inToken) {
+				inToken = true;
+				value = 1;
+			} else {
+				inToken = true;
+				invalid = true;
+			}
+		}
+
+		private final void endToken() {
+			if (inToken && !invalid && (digits > 0)) {
+				if (size == values.length) {
+					values = Arrays.copyOf(values, grow(size));
+				}
+				values[size++] = value;
+			}
+			inToken = invalid = false;
+			value = digits = 0;
+		}
+
+		private static final int grow(final int size) {
+			final long newSize = Math.min((long) size << 1, Integer.MAX_VALUE - 8);
+			if (newSize <= size)
+				throw new OutOfMemoryError("Too many numbers: " + size);
+			return (int) newSize;
+		}
+
+		final long[] finish() {
+			endToken();
+			return Arrays.copyOf(values, size);
 		}
-		return new String(buf, i + 1, buf.length - 1 - i);
 	}
 
 	public static void main(String[] args) {
@@ -68,6 +207,13 @@ public class EncoderMSISDN {
 		System.out.println(fromLong(l1));
 		System.out.println(fromLong(l2));
 		System.out.println(fromLong(l3));
+		final long[] batch = toLongs("677123456,+34655123456;\"+0035688123456\"\n123x\n +34600000001 \r\n");
+		final char[] buf = new char[MAX_CHARS];
+		final StringBuilder sb = new StringBuilder();
+		for (final long l : batch) {
+			fromLong(l, sb, buf).append(' ');
+		}
+		System.out.println(batch.length + ": " + sb);
 	}
 
 }
@@ -0,0 +1,267 @@
+import java.io.ByteArrayInputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The HexDump writes "hexdump -C" style (offset, hex bytes, ASCII) dumps of all bytes written to a
+ * specified Appendable (StringBuilder, Writer, PrintStream...). Output is generated line by line reusing
+ * one line buffer, so arbitrary large input (InputStream, ByteBuffer) can be dumped in constant memory.
+ * Repeated lines are collapsed into a single "*" line. Must be closed (or finished) to write the last
+ * (partial) line and the final offset.
+ *
+ * <pre>
+ * 00000000  68 65 6c 6c 6f 20 77 6f  72 6c 64 0a              |hello world.|
+ * 0000000c
+ * </pre>
+ */
+public class HexDump extends OutputStream {
+	static final int BYTES_PER_LINE = 16;
+	static final int BUFFER_LENGTH = 4096;
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+	// offset (up to 16 digits) + 2 + hex (16 * 3 + 1) + 1 + "|" + ascii (16) + "|" + "\n"
+	private static final int LINE_LENGTH = 16 + 2 + (BYTES_PER_LINE * 3 + 1) + 1 + 1 + BYTES_PER_LINE + 1 + 1;
+
+	final Appendable out;
+	final byte[] current = new byte[BYTES_PER_LINE];
+	final byte[] previous = new byte[BYTES_PER_LINE];
+	final char[] line = new char[LINE_LENGTH];
+	final CharBuffer lineSeq = CharBuffer.wrap(line);
+	final byte[] single = new byte[1];
+	int currentLength = 0;
+	long offset = 0;
+	boolean hasPrevious = false;
+	boolean skipping = false;
+	boolean finished = false;
+
+	public HexDump(final Appendable out) {
+		this.out = out;
+	}
+
+	/**
+	 * Dump all bytes of InputStream (until EOF, not closed) to Appendable
+	 *
+	 * @param in
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void dump(final InputStream in, final Appendable out) throws IOException {
+		final HexDump dump = new HexDump(out);
+		final byte[] buf = new byte[BUFFER_LENGTH];
+		int read;
+		while ((read = in.read(buf)) != -1) {
+			dump.write(buf, 0, read);
+		}
+		dump.finish();
+	}
+
+	/**
+	 * Dump bytes from position to limit of ByteBuffer (heap or direct) to Appendable, buffer position is
+	 * not modified
+	 *
+	 * @param buf
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void dump(final ByteBuffer buf, final Appendable out) throws IOException {
+		final HexDump dump = new HexDump(out);
+		dump.write(buf.duplicate());
+		dump.finish();
+	}
+
+	/**
+	 * Dump byte array range to Appendable
+	 *
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void dump(final byte[] b, final int off, final int len, final Appendable out)
+			throws IOException {
+		final HexDump dump = new HexDump(out);
+		dump.write(b, off, len);
+		dump.finish();
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		if (finished)
+			throw new IOException("Stream finished");
+		if ((off < 0) || (len < 0) || (off > b.length - len))
+			throw new IndexOutOfBoundsException();
+		while (len > 0) {
+			final int n = Math.min(len, BYTES_PER_LINE - currentLength);
+			System.arraycopy(b, off, current, currentLength, n);
+			currentLength += n;
+			off += n;
+			len -= n;
+			if (currentLength == BYTES_PER_LINE)
+				flushLine();
+		}
+	}
+
+	/**
+	 * Dump bytes from position to limit of ByteBuffer (heap or direct), position is advanced to limit
+	 *
+	 * @param src
+	 * @throws IOException
+	 */
+	public void write(final ByteBuffer src) throws IOException {
+		if (finished)
+			throw new IOException("Stream finished");
+		while (src.hasRemaining()) {
+			final int n = Math.min(src.remaining(), BYTES_PER_LINE - currentLength);
+			src.get(current, currentLength, n);
+			currentLength += n;
+			if (currentLength == BYTES_PER_LINE)
+				flushLine();
+		}
+	}
+
+	/**
+	 * Write a full line, or "*" if it repeats the previous one
+	 */
+	private void flushLine() throws IOException {
+		final int len = currentLength;
+		if (hasPrevious && (len == BYTES_PER_LINE) && Arrays.equals(current, previous)) {
+			if (!skipping) {
+				skipping = true;
+				out.append("*\n");
+			}
+		} else {
+			skipping = false;
+			append(formatLine(current, len, offset));
+			System.arraycopy(current, 0, previous, 0, BYTES_PER_LINE);
+			hasPrevious = true;
+		}
+		offset += len;
+		currentLength = 0;
+	}
+
+	/**
+	 * Format line into line buffer
+	 *
+	 * @return number of chars
+	 */
+	private int formatLine(final byte[] b, final int len, final long offset) {
+		final char[] c = line;
+		int p = formatOffset(offset);
+		c[p++] = ' ';
+		c[p++] = ' ';
+		for (int i = 0; i < BYTES_PER_LINE; i++) {
+			if (i < len) {
+				final int v = b[i] & 0xFF;
+				c[p++] = HEX_CHARS[v >>> 4];
+				c[p++] = HEX_CHARS[v & 0xF];
+			} else {
+				c[p++] = ' ';
+				c[p++] = ' ';
+			}
+			c[p++] = ' ';
+			if (i == ((BYTES_PER_LINE >>> 1) - 1))
+				c[p++] = ' ';
+		}
+		c[p++] = ' ';
+		c[p++] = '|';
+		for (int i = 0; i < len; i++) {
+			final int v = b[i] & 0xFF;
+			c[p++] = (((v >= 0x20) && (v < 0x7F)) ? (char) v : '.');
+		}
+		c[p++] = '|';
+		c[p++] = '\n';
+		return p;
+	}
+
+	/**
+	 * Format offset (at least 8 hex digits) at start of line buffer
+	 *
+	 * @return number of chars
+	 */
+	private int formatOffset(final long offset) {
+		final int digits = Math.max(8, (64 - Long.numberOfLeadingZeros(offset) + 3) >>> 2);
+		for (int i = 0; i < digits; i++) {
+			line[i] = HEX_CHARS[(int) (offset >>> ((digits - 1 - i) << 2)) & 0xF];
+		}
+		return digits;
+	}
+
+	/**
+	 * Append line buffer to output (without intermediate copies for StringBuilder/Writer)
+	 */
+	private void append(final int len) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(line, 0, len);
+		} else if (out instanceof Writer) {
+			((Writer) out).write(line, 0, len);
+		} else {
+			out.append(lineSeq, 0, len);
+		}
+	}
+
+	/**
+	 * Write last (partial) line and final offset, without closing underlying Appendable
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (!finished) {
+			finished = true;
+			if (currentLength > 0)
+				flushLine();
+			if (offset > 0) {
+				int p = formatOffset(offset);
+				line[p++] = '\n';
+				append(p);
+			}
+			flush();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (out instanceof Flushable)
+			((Flushable) out).flush();
+	}
+
+	/**
+	 * Finish dump, underlying Appendable is not closed
+	 */
+	@Override
+	public void close() throws IOException {
+		finish();
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 */
+	public static void main(final String[] args) throws Throwable {
+		final StringBuilder sb = new StringBuilder();
+		dump("hello world\n".getBytes("ISO-8859-1"), 0, 12, sb);
+		System.out.print(sb);
+		// Repeated lines
+		final byte[] data = new byte[100];
+		for (int i = 80; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		dump(new ByteArrayInputStream(data), System.out);
+		// Direct buffer
+		final ByteBuffer bb = ByteBuffer.allocateDirect(20);
+		bb.put("0123456789ABCDEFGHIJ".getBytes("ISO-8859-1")).flip();
+		dump(bb, System.out);
+	}
+}
@@ -12,16 +12,35 @@
  *  limitations under the License.
  *
  */
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Map Expression using System Properties, HashMap, and others
+ * <p>
+ * Syntax:
+ * <ul>
+ * <li><code>${name}</code>: value of name ("null" if not found)</li>
+ * <li><code>${name:-default}</code>: value of name, or default if not found (default can contain
+ * placeholders)</li>
+ * <li><code>${outer.${inner}}</code>: nested, name is resolved before lookup</li>
+ * </ul>
+ * Values that contain placeholders are resolved recursively (a cyclic reference throws
+ * {@link InvalidExpression}). Resolution is memoized per evaluation, so shared sub-expressions are resolved
+ * only once.
  * 
  * @link <a href="http://technobcn.wordpress.com/2013/09/30/java-expression-eval-system-property/">Java:
  *       Expression Eval (System Property)</a>
@@ -101,15 +120,45 @@ public class MapExpression {
 	 */
 	public MapExpression eval() throws InvalidExpression {
 		buffer.setLength(0);
+		// Created only if nested, default or recursive placeholders are found
+		Resolver resolver = null;
 		final int len = tokens.size();
 		for (int i = 0; i < len; i++) {
 			final Token tok = tokens.get(i);
-			buffer.append(tok.isString ? tok.token : mapTokenPost(tok.token));
+			if (tok.isString) {
+				buffer.append(tok.token);
+			} else if (tok.isSimple() && (resolver == null)) {
+				final String value = mapTokenPost(tok.token);
+				if (Resolver.isExpression(value)) {
+					resolver = new PostResolver();
+					buffer.append(resolver.resolveValue(tok.token, value));
+				} else {
+					buffer.append(value);
+				}
+			} else {
+				if (resolver == null)
+					resolver = new PostResolver();
+				buffer.append(resolver.resolve(tok));
+			}
 		}
 		mapped = buffer.toString();
 		return this;
 	}
 
+	/**
+	 * Compile expression into an immutable {@link Template}, that can be shared and rendered concurrently
+	 * from many threads with any {@link Mapper}
+	 * 
+	 * @param expression
+	 *            to map
+	 * @return compiled template
+	 * @throws InvalidExpression
+	 *             if expression is wrong
+	 */
+	public static Template compile(final String expression) throws InvalidExpression {
+		return new Template(expression, new MapExpression(expression, null, null, false).tokens);
+	}
+
 	/**
 	 * Get mapped expression
 	 * 
@@ -121,7 +170,17 @@ public class MapExpression {
 	}
 
 	/**
-	 * Parse input expression
+	 * Returns global cache of parsed expressions
+	 * 
+	 * @return
+	 */
+	public static ParseCache getParseCache() {
+		return ParseCache.INSTANCE;
+	}
+
+	/**
+	 * Parse input expression (parsed tokens are shared through {@link ParseCache} if
+	 * {@link #isParseCacheable()})
 	 * 
 	 * @param expression
 	 * @throws InvalidExpression
@@ -133,6 +192,51 @@ public class MapExpression {
 		tokens.clear();
 		if (expression.isEmpty())
 			return;
+		final boolean cacheable = isParseCacheable();
+		if (cacheable) {
+			final Token[] cached = ParseCache.INSTANCE.get(expression);
+			if (cached != null) {
+				Collections.addAll(tokens, cached);
+				return;
+			}
+		}
+		parseTokens(expression);
+		if (cacheable)
+			ParseCache.INSTANCE.put(expression, tokens.toArray(new Token[tokens.size()]));
+	}
+
+	/**
+	 * Returns true if parsed tokens depend only on expression, so they can be shared through
+	 * {@link ParseCache}. Default is true without pre mapper; subclasses that change parsing (like
+	 * {@link #mapTokenPre(String)}) must return false. Called from constructor, before subclass fields are
+	 * initialized.
+	 * 
+	 * @return
+	 */
+	protected boolean isParseCacheable() {
+		return (preMapper == null);
+	}
+
+	/**
+	 * Parse expression, pre mapper is applied to simple names (nested or default placeholders are resolved
+	 * on eval)
+	 */
+	private void parseTokens(final String expression) throws InvalidExpression {
+		for (final Token tok : tokenize(expression)) {
+			tokens.add((!tok.isString && tok.isSimple()) ? new Token(mapTokenPre(tok.token), false) : tok);
+		}
+	}
+
+	/**
+	 * Split expression in literals and placeholders
+	 * 
+	 * @param expression
+	 * @return tokens
+	 * @throws InvalidExpression
+	 *             if expression is wrong
+	 */
+	static Token[] tokenize(final String expression) throws InvalidExpression {
+		final ArrayList<Token> tokens = new ArrayList<Token>();
 		// Find all ${tag}
 		final int len = expression.length();
 		int last = 0;
@@ -141,24 +245,70 @@ public class MapExpression {
 			if (cbegin == '$' && ((i + 1) < len)) {
 				final char cnext = expression.charAt(++i);
 				if (cnext == '{') {
-					tokens.add(new Token(expression.substring(last, i - 1), true));
+					final int end = findEnd(expression, i + 1);
+					if (end < 0)
+						throw new InvalidExpression("Not well ended expression: " + expression.substring(i - 1, len),
+								len);
+					if (last < (i - 1))
+						tokens.add(new Token(expression.substring(last, i - 1), true));
+					tokens.add(placeholder(expression, i + 1, end));
+					i = end;
 					last = i + 1;
-					for (; i < len; i++) {
-						final char cend = expression.charAt(i);
-						if (cend == '}') {
-							tokens.add(new Token(mapTokenPre(expression.substring(last, i)), false));
-							last = i + 1;
-							break;
-						}
-					}
-					if ((i == len) && (last <= len))
-						throw new InvalidExpression("Not well ended expression: "
-								+ expression.substring(last - 2, len), len);
 				}
 			}
 		}
 		if (last < len)
 			tokens.add(new Token(expression.substring(last, len), true));
+		return tokens.toArray(new Token[tokens.size()]);
+	}
+
+	/**
+	 * Find the '}' that ends a placeholder (skipping nested placeholders)
+	 * 
+	 * @return index or -1 if not found
+	 */
+	private static int findEnd(final String expression, final int begin) {
+		final int len = expression.length();
+		int depth = 0;
+		for (int i = begin; i < len; i++) {
+			final char c = expression.charAt(i);
+			if (c == '}') {
+				if (depth == 0)
+					return i;
+				depth--;
+			} else if ((c == '$') && ((i + 1) < len) && (expression.charAt(i + 1) == '{')) {
+				depth++;
+				i++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parse placeholder content (between "${" and "}"): name and optional ":-default"
+	 */
+	private static Token placeholder(final String expression, final int begin, final int end)
+			throws InvalidExpression {
+		int sep = -1;
+		int depth = 0;
+		for (int i = begin; i < end - 1; i++) {
+			final char c = expression.charAt(i);
+			if ((c == '$') && (expression.charAt(i + 1) == '{')) {
+				depth++;
+				i++;
+			} else if (c == '}') {
+				depth--;
+			} else if ((c == ':') && (depth == 0) && (expression.charAt(i + 1) == '-')) {
+				sep = i;
+				break;
+			}
+		}
+		final String name = expression.substring(begin, (sep < 0) ? end : sep);
+		final Token[] nameTokens = (name.indexOf("${") < 0) ? null : tokenize(name);
+		final Token[] defaultTokens = (sep < 0) ? null : tokenize(expression.substring(sep + 2, end));
+		if (name.isEmpty())
+			throw new InvalidExpression("Invalid name (empty)", begin);
+		return new Token(name, nameTokens, defaultTokens);
 	}
 
 	/**
@@ -200,6 +350,129 @@ public class MapExpression {
 		return super.toString() + " [expression=" + expression + "]";
 	}
 
+	/**
+	 * Resolver of nested, default and recursive placeholders, with memoization and cycle detection (one
+	 * instance per evaluation)
+	 */
+	abstract static class Resolver {
+		// resolved values by name (memoized)
+		private HashMap<String, String> resolved = null;
+		// names being resolved (cycle detection)
+		private HashSet<String> resolving = null;
+
+		/**
+		 * Lookup value of name
+		 */
+		abstract String lookup(final String name) throws InvalidExpression;
+
+		static boolean isExpression(final String value) {
+			return ((value != null) && (value.indexOf("${") >= 0));
+		}
+
+		/**
+		 * Resolve placeholder
+		 * 
+		 * @return value or null if not found (and no default)
+		 */
+		final String resolve(final Token tok) throws InvalidExpression {
+			final String name = ((tok.nameTokens == null) ? tok.token : renderName(tok.nameTokens));
+			final String value = ((name == null) ? null : resolveName(name));
+			if ((value == null) && (tok.defaultTokens != null))
+				return render(tok.defaultTokens);
+			return value;
+		}
+
+		final String resolveName(final String name) throws InvalidExpression {
+			if ((resolved != null) && resolved.containsKey(name))
+				return resolved.get(name);
+			return resolveValue(name, lookup(name));
+		}
+
+		/**
+		 * Resolve placeholders in value of name (recursive)
+		 */
+		final String resolveValue(final String name, String value) throws InvalidExpression {
+			if (isExpression(value)) {
+				if (resolving == null)
+					resolving = new HashSet<String>();
+				if (!resolving.add(name))
+					throw new InvalidExpression("Cyclic reference: " + name + " " + resolving, 0);
+				try {
+					value = render(parse(value));
+				} finally {
+					resolving.remove(name);
+				}
+			}
+			if (resolved == null)
+				resolved = new HashMap<String, String>();
+			resolved.put(name, value);
+			return value;
+		}
+
+		/**
+		 * Render nested name
+		 * 
+		 * @return name or null if a part is not resolved (whole placeholder is not resolved)
+		 * @throws InvalidExpression
+		 *             if name is empty
+		 */
+		private final String renderName(final Token[] tokens) throws InvalidExpression {
+			final StringBuilder sb = new StringBuilder();
+			for (final Token tok : tokens) {
+				final String part = (tok.isString ? tok.token : resolve(tok));
+				if (part == null)
+					return null;
+				sb.append(part);
+			}
+			if (sb.length() == 0)
+				throw new InvalidExpression("Invalid name (empty)", 0);
+			return sb.toString();
+		}
+
+		private final String render(final Token[] tokens) throws InvalidExpression {
+			if ((tokens.length == 1) && tokens[0].isString)
+				return tokens[0].token;
+			final StringBuilder sb = new StringBuilder();
+			for (final Token tok : tokens) {
+				sb.append(tok.isString ? tok.token : resolve(tok));
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Tokenize value (not cached, values are memoized by name), malformed values are literal
+		 */
+		private static Token[] parse(final String value) {
+			try {
+				return tokenize(value);
+			} catch (InvalidExpression e) {
+				return new Token[] {
+					new Token(value, true)
+				};
+			}
+		}
+	}
+
+	private final class PostResolver extends Resolver {
+		@Override
+		String lookup(final String name) throws InvalidExpression {
+			return mapTokenPost(name);
+		}
+	}
+
+	private static final class MapperResolver extends Resolver {
+		private final Mapper mapper;
+
+		MapperResolver(final Mapper mapper) {
+			this.mapper = mapper;
+		}
+
+		@Override
+		String lookup(final String name) {
+			return mapper.map(name);
+		}
+	}
+
 	public static class InvalidExpression extends ParseException {
 		private static final long serialVersionUID = 42L;
 
@@ -208,13 +481,576 @@ public class MapExpression {
 		}
 	}
 
+	/**
+	 * Immutable compiled expression (render plan): literals and names are split at compile time, and length
+	 * of literals is precomputed, so output is sized exactly before appending. Safe for use by multiple
+	 * threads.
+	 * <p>
+	 * Render of nested, default or recursive placeholders is like {@link MapExpression#eval()}, a cyclic
+	 * reference or a nested name rendered empty throws IllegalArgumentException (with
+	 * {@link InvalidExpression} as cause).
+	 */
+	public static final class Template {
+		public final String expression;
+		// literals[i] precedes names[i], last literal follows last name (literals.length == names.length + 1)
+		private final String[] literals;
+		private final String[] names;
+		private final Token[] placeholders;
+		private final int literalLength;
+
+		Template(final String expression, final List<Token> tokens) {
+			final ArrayList<String> literals = new ArrayList<String>();
+			final ArrayList<String> names = new ArrayList<String>();
+			final ArrayList<Token> placeholders = new ArrayList<Token>();
+			final StringBuilder literal = new StringBuilder();
+			for (final Token tok : tokens) {
+				if (tok.isString) {
+					literal.append(tok.token);
+				} else {
+					literals.add(literal.toString());
+					names.add(tok.token);
+					placeholders.add(tok);
+					literal.setLength(0);
+				}
+			}
+			literals.add(literal.toString());
+			int literalLength = 0;
+			for (final String l : literals) {
+				literalLength += l.length();
+			}
+			this.expression = expression;
+			this.literals = literals.toArray(new String[literals.size()]);
+			this.names = names.toArray(new String[names.size()]);
+			this.placeholders = placeholders.toArray(new Token[placeholders.size()]);
+			this.literalLength = literalLength;
+		}
+
+		/**
+		 * Render template into a new String
+		 * 
+		 * @param mapper
+		 *            mapper for parameters (null to render names)
+		 * @return rendered expression
+		 */
+		public String render(final Mapper mapper) {
+			final String[] values = resolve(mapper);
+			final StringBuilder sb = new StringBuilder(length(values));
+			append(sb, values);
+			return sb.toString();
+		}
+
+		/**
+		 * Render template appending to caller-supplied StringBuilder (capacity is ensured once, with exact
+		 * length)
+		 * 
+		 * @param mapper
+		 *            mapper for parameters (null to render names)
+		 * @param sb
+		 * @return sb
+		 */
+		public StringBuilder render(final Mapper mapper, final StringBuilder sb) {
+			final String[] values = resolve(mapper);
+			sb.ensureCapacity(sb.length() + length(values));
+			append(sb, values);
+			return sb;
+		}
+
+		/**
+		 * Render template appending to caller-supplied Appendable
+		 * 
+		 * @param mapper
+		 *            mapper for parameters (null to render names)
+		 * @param out
+		 * @return out
+		 * @throws IOException
+		 */
+		public Appendable render(final Mapper mapper, final Appendable out) throws IOException {
+			if (out instanceof StringBuilder)
+				return render(mapper, (StringBuilder) out);
+			final String[] literals = this.literals;
+			final String[] values = resolve(mapper);
+			for (int i = 0; i < values.length; i++) {
+				out.append(literals[i]).append(values[i]);
+			}
+			return out.append(literals[values.length]);
+		}
+
+		/**
+		 * Map names (unresolved names are rendered as "null", like {@link MapExpression#eval()})
+		 */
+		private String[] resolve(final Mapper mapper) {
+			final String[] names = this.names;
+			final String[] values = new String[names.length];
+			if (mapper == null) {
+				System.arraycopy(names, 0, values, 0, names.length);
+				return values;
+			}
+			// Created only if nested, default or recursive placeholders are found
+			Resolver resolver = null;
+			try {
+				for (int i = 0; i < names.length; i++) {
+					final Token tok = placeholders[i];
+					String value;
+					if (tok.isSimple() && (resolver == null)) {
+						value = mapper.map(names[i]);
+						if (Resolver.isExpression(value)) {
+							resolver = new MapperResolver(mapper);
+							value = resolver.resolveValue(names[i], value);
+						}
+					} else {
+						if (resolver == null)
+							resolver = new MapperResolver(mapper);
+						value = resolver.resolve(tok);
+					}
+					values[i] = ((value == null) ? "null" : value);
+				}
+			} catch (InvalidExpression e) {
+				throw new IllegalArgumentException(e.getMessage(), e);
+			}
+			return values;
+		}
+
+		private int length(final String[] values) {
+			int len = literalLength;
+			for (int i = 0; i < values.length; i++) {
+				len += values[i].length();
+			}
+			return len;
+		}
+
+		private void append(final StringBuilder sb, final String[] values) {
+			final String[] literals = this.literals;
+			for (int i = 0; i < values.length; i++) {
+				sb.append(literals[i]).append(values[i]);
+			}
+			sb.append(literals[values.length]);
+		}
+
+		/**
+		 * Returns total length of literal text
+		 * 
+		 * @return
+		 */
+		public int getLiteralLength() {
+			return literalLength;
+		}
+
+		/**
+		 * Returns names of parameters (in order of appearance)
+		 * 
+		 * @return
+		 */
+		public String[] getNames() {
+			return names.clone();
+		}
+
+		/**
+		 * Bind template to a fixed vocabulary: each placeholder gets the slot index of its name, so
+		 * rendering reads values by index (no hashing, no mapper chain)
+		 * 
+		 * @param vocabulary
+		 * @return bound template
+		 * @throws IllegalArgumentException
+		 *             if a name is not in vocabulary or is nested
+		 */
+		public BoundTemplate bind(final Vocabulary vocabulary) {
+			final int[] slots = new int[placeholders.length];
+			final BoundTemplate[] defaults = new BoundTemplate[placeholders.length];
+			for (int i = 0; i < placeholders.length; i++) {
+				final Token tok = placeholders[i];
+				if (tok.nameTokens != null)
+					throw new IllegalArgumentException("Nested name not supported: " + tok.token);
+				slots[i] = vocabulary.slotOf(tok.token);
+				if (slots[i] < 0)
+					throw new IllegalArgumentException("Name not in vocabulary: " + tok.token);
+				if (tok.defaultTokens != null)
+					defaults[i] = new Template(null, Arrays.asList(tok.defaultTokens)).bind(vocabulary);
+			}
+			return new BoundTemplate(expression, vocabulary, literals, slots, defaults, literalLength);
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " [expression=" + expression + "]";
+		}
+	}
+
+	/**
+	 * Fixed set of names, each one with a slot index (0 to size - 1). Values for a vocabulary are a String[]
+	 * indexed by slot. Immutable and safe for use by multiple threads.
+	 * 
+	 * @see Template#bind(Vocabulary)
+	 */
+	public static final class Vocabulary {
+		private final String[] names;
+		private final HashMap<String, Integer> slots;
+
+		/**
+		 * Create vocabulary (slot is the position of name, duplicates are ignored)
+		 * 
+		 * @param names
+		 */
+		public Vocabulary(final String... names) {
+			final ArrayList<String> list = new ArrayList<String>(names.length);
+			this.slots = new HashMap<String, Integer>(names.length << 1);
+			for (final String name : names) {
+				if (!slots.containsKey(name)) {
+					slots.put(name, Integer.valueOf(list.size()));
+					list.add(name);
+				}
+			}
+			this.names = list.toArray(new String[list.size()]);
+		}
+
+		/**
+		 * Create vocabulary with all names (including names of defaults) used by templates
+		 * 
+		 * @param templates
+		 * @return
+		 */
+		public static Vocabulary of(final Template... templates) {
+			final ArrayList<String> names = new ArrayList<String>();
+			for (final Template t : templates) {
+				addNames(names, t.placeholders);
+			}
+			return new Vocabulary(names.toArray(new String[names.size()]));
+		}
+
+		private static void addNames(final List<String> names, final Token[] tokens) {
+			for (final Token tok : tokens) {
+				if (tok.isString)
+					continue;
+				names.add(tok.token);
+				if (tok.defaultTokens != null)
+					addNames(names, tok.defaultTokens);
+			}
+		}
+
+		/**
+		 * Returns slot of name
+		 * 
+		 * @param name
+		 * @return slot or -1 if not found
+		 */
+		public int slotOf(final String name) {
+			final Integer slot = slots.get(name);
+			return ((slot == null) ? -1 : slot.intValue());
+		}
+
+		/**
+		 * Returns name of slot
+		 * 
+		 * @param slot
+		 * @return
+		 */
+		public String getName(final int slot) {
+			return names[slot];
+		}
+
+		/**
+		 * Returns number of names
+		 * 
+		 * @return
+		 */
+		public int size() {
+			return names.length;
+		}
+
+		/**
+		 * Create empty values (all null)
+		 * 
+		 * @return
+		 */
+		public String[] newValues() {
+			return new String[names.length];
+		}
+
+		/**
+		 * Create values mapping each name once
+		 * 
+		 * @param mapper
+		 * @return
+		 */
+		public String[] values(final Mapper mapper) {
+			final String[] values = new String[names.length];
+			for (int i = 0; i < names.length; i++) {
+				values[i] = mapper.map(names[i]);
+			}
+			return values;
+		}
+
+		/**
+		 * Create mapper over values (for use with {@link MapExpression} or {@link Template})
+		 * 
+		 * @param values
+		 * @return
+		 */
+		public Mapper mapper(final String[] values) {
+			return new Mapper() {
+				@Override
+				public String map(final String input) {
+					final int slot = slotOf(input);
+					return ((slot < 0) ? null : values[slot]);
+				}
+			};
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " " + Arrays.toString(names);
+		}
+	}
+
+	/**
+	 * Template bound to a {@link Vocabulary}, rendered from values by slot index. Unresolved values (null)
+	 * are rendered as default (if any) or "null"; values are inserted literally (not resolved
+	 * recursively). Immutable and safe for use by multiple threads.
+	 */
+	public static final class BoundTemplate {
+		public final String expression;
+		private final Vocabulary vocabulary;
+		// literals[i] precedes value of slots[i] (literals.length == slots.length + 1)
+		private final String[] literals;
+		private final int[] slots;
+		// bound default of placeholder (null if none)
+		private final BoundTemplate[] defaults;
+		private final int literalLength;
+
+		BoundTemplate(final String expression, final Vocabulary vocabulary, final String[] literals,
+				final int[] slots, final BoundTemplate[] defaults, final int literalLength) {
+			this.expression = expression;
+			this.vocabulary = vocabulary;
+			this.literals = literals;
+			this.slots = slots;
+			this.defaults = defaults;
+			this.literalLength = literalLength;
+		}
+
+		/**
+		 * Render template into a new String
+		 * 
+		 * @param values
+		 *            indexed by slot of vocabulary
+		 * @return rendered expression
+		 */
+		public String render(final String[] values) {
+			checkValues(values);
+			final StringBuilder sb = new StringBuilder(length(values));
+			append(sb, values);
+			return sb.toString();
+		}
+
+		/**
+		 * Render template appending to caller-supplied StringBuilder (capacity is ensured once, with exact
+		 * length)
+		 * 
+		 * @param values
+		 *            indexed by slot of vocabulary
+		 * @param sb
+		 * @return sb
+		 */
+		public StringBuilder render(final String[] values, final StringBuilder sb) {
+			checkValues(values);
+			sb.ensureCapacity(sb.length() + length(values));
+			append(sb, values);
+			return sb;
+		}
+
+		private void checkValues(final String[] values) {
+			if (values.length < vocabulary.size())
+				throw new IllegalArgumentException("Invalid values length: " + values.length + " < "
+						+ vocabulary.size());
+		}
+
+		private int length(final String[] values) {
+			int len = literalLength;
+			final int[] slots = this.slots;
+			for (int i = 0; i < slots.length; i++) {
+				final String value = values[slots[i]];
+				if (value != null) {
+					len += value.length();
+				} else if (defaults[i] != null) {
+					len += defaults[i].length(values);
+				} else {
+					len += 4; // "null"
+				}
+			}
+			return len;
+		}
+
+		private void append(final StringBuilder sb, final String[] values) {
+			final String[] literals = this.literals;
+			final int[] slots = this.slots;
+			for (int i = 0; i < slots.length; i++) {
+				sb.append(literals[i]);
+				final String value = values[slots[i]];
+				if ((value == null) && (defaults[i] != null)) {
+					defaults[i].append(sb, values);
+				} else {
+					sb.append(value);
+				}
+			}
+			sb.append(literals[slots.length]);
+		}
+
+		/**
+		 * Returns vocabulary of template
+		 * 
+		 * @return
+		 */
+		public Vocabulary getVocabulary() {
+			return vocabulary;
+		}
+
+		@Override
+		public String toString() {
+			return super.toString() + " [expression=" + expression + "]";
+		}
+	}
+
+	/**
+	 * Global bounded cache of parsed expressions (expression to immutable tokens), safe for use by multiple
+	 * threads. Eviction is CLOCK (second chance): a hit sets the reference bit of the entry, and the evictor
+	 * skips (and clears) referenced entries once, approximating LRU without reordering on reads. Limits can
+	 * be set with system properties "MapExpression.parseCache.maxEntries" (default 4096) and
+	 * "MapExpression.parseCache.maxWeight" (sum of expression lengths, default 1M chars).
+	 */
+	public static final class ParseCache {
+		static final ParseCache INSTANCE = new ParseCache(
+				Integer.getInteger("MapExpression.parseCache.maxEntries", 4096),
+				Long.getLong("MapExpression.parseCache.maxWeight", 1L << 20));
+
+		private final ConcurrentHashMap<String, Entry> map = new ConcurrentHashMap<String, Entry>();
+		private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+		private final AtomicLong weight = new AtomicLong();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private final int maxEntries;
+		private final long maxWeight;
+
+		ParseCache(final int maxEntries, final long maxWeight) {
+			this.maxEntries = maxEntries;
+			this.maxWeight = maxWeight;
+		}
+
+		Token[] get(final String expression) {
+			final Entry e = map.get(expression);
+			if (e == null) {
+				misses.increment();
+				return null;
+			}
+			if (!e.referenced) // avoid write (cache line invalidation) if already set
+				e.referenced = true;
+			hits.increment();
+			return e.tokens;
+		}
+
+		void put(final String expression, final Token[] tokens) {
+			final int w = expression.length();
+			if ((maxEntries <= 0) || (w > maxWeight))
+				return;
+			final Entry e = new Entry(expression, tokens, w);
+			if (map.putIfAbsent(expression, e) != null)
+				return;
+			clock.offer(e);
+			if ((weight.addAndGet(w) > maxWeight) || (map.size() > maxEntries))
+				evict();
+		}
+
+		private void evict() {
+			synchronized (clock) {
+				while ((weight.get() > maxWeight) || (map.size() > maxEntries)) {
+					final Entry e = clock.poll();
+					if (e == null)
+						break;
+					if (e.referenced) { // second chance
+						e.referenced = false;
+						clock.offer(e);
+					} else if (map.remove(e.expression, e)) {
+						weight.addAndGet(-e.weight);
+						evictions.increment();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Remove all entries (counters are not reset)
+		 */
+		public void clear() {
+			synchronized (clock) {
+				Entry e;
+				while ((e = clock.poll()) != null) {
+					if (map.remove(e.expression, e))
+						weight.addAndGet(-e.weight);
+				}
+			}
+		}
+
+		public int size() {
+			return map.size();
+		}
+
+		public long getWeight() {
+			return weight.get();
+		}
+
+		public long getHitCount() {
+			return hits.sum();
+		}
+
+		public long getMissCount() {
+			return misses.sum();
+		}
+
+		public long getEvictionCount() {
+			return evictions.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "ParseCache [size=" + size() + " weight=" + getWeight() + " hits=" + getHitCount() + " misses="
+					+ getMissCount() + " evictions=" + getEvictionCount() + "]";
+		}
+
+		private static final class Entry {
+			final String expression;
+			final Token[] tokens;
+			final int weight;
+			volatile boolean referenced = false;
+
+			Entry(final String expression, final Token[] tokens, final int weight) {
+				this.expression = expression;
+				this.tokens = tokens;
+				this.weight = weight;
+			}
+		}
+	}
+
 	private static final class Token {
 		public final String token;
 		public final boolean isString;
+		// parsed name (if nested) and default (if any) of placeholder
+		public final Token[] nameTokens;
+		public final Token[] defaultTokens;
 
 		public Token(final String token, final boolean isToken) {
 			this.token = token;
 			this.isString = isToken;
+			this.nameTokens = null;
+			this.defaultTokens = null;
+		}
+
+		public Token(final String name, final Token[] nameTokens, final Token[] defaultTokens) {
+			this.token = name;
+			this.isString = false;
+			this.nameTokens = nameTokens;
+			this.defaultTokens = defaultTokens;
+		}
+
+		boolean isSimple() {
+			return ((nameTokens == null) && (defaultTokens == null));
 		}
 	}
 
@@ -223,7 +1059,7 @@ public class MapExpression {
 	}
 
 	public static class MapMapper implements Mapper {
-		private final Map<String, String> map;
+		protected final Map<String, String> map;
 
 		public MapMapper(final Map<String, String> map) {
 			this.map = map;
@@ -240,6 +1076,64 @@ public class MapExpression {
 		}
 	}
 
+	/**
+	 * Listener of key changes
+	 */
+	public static interface ChangeListener {
+		/**
+		 * Key was changed (added, modified or removed)
+		 *
+		 * @param key
+		 */
+		public void propertyChanged(final String key);
+	}
+
+	/**
+	 * {@link MapMapper} that notifies listeners (like {@link MapExpressionRegistry}) when a key is modified through
+	 * {@link #put(String, String)} or {@link #remove(String)}. Listeners are called on the thread that modified
+	 * the key, after the change.
+	 * <p>
+	 * Instances are not safe for concurrent modification (unless the map is a concurrent map, like
+	 * ConcurrentHashMap); adding and removing listeners is safe from any thread.
+	 */
+	public static class ObservableMapMapper extends MapMapper {
+		private final CopyOnWriteArrayList<ChangeListener> listeners = new CopyOnWriteArrayList<ChangeListener>();
+
+		public ObservableMapMapper(final Map<String, String> map) {
+			super(map);
+		}
+
+		public ObservableMapMapper addListener(final ChangeListener listener) {
+			listeners.add(listener);
+			return this;
+		}
+
+		public ObservableMapMapper removeListener(final ChangeListener listener) {
+			listeners.remove(listener);
+			return this;
+		}
+
+		public String put(final String key, final String value) {
+			final String old = map.put(key, value);
+			if ((old == null) ? (value != null) : !old.equals(value))
+				fire(key);
+			return old;
+		}
+
+		public String remove(final String key) {
+			final String old = map.remove(key);
+			if (old != null)
+				fire(key);
+			return old;
+		}
+
+		private void fire(final String key) {
+			for (final ChangeListener l : listeners) {
+				l.propertyChanged(key);
+			}
+		}
+	}
+
 	public static class SystemPropertyMapper implements Mapper {
 		private static final SystemPropertyMapper singleton = new SystemPropertyMapper();
 
@@ -323,5 +1217,68 @@ public class MapExpression {
 			m.eval().get();
 		}
 		System.out.println("benchmark eval=" + (System.currentTimeMillis() - begin));
+		// Benchmark Compiled Template
+		final Template t = compile("Hi ${user.name}, you are ${user.state}!! ${static}");
+		final Mapper mapper = new MultiMapper().add(new MapMapper(map)).add(SystemPropertyMapper.getInstance());
+		System.out.println(t.render(mapper));
+		final StringBuilder sb = new StringBuilder();
+		begin = System.currentTimeMillis();
+		for (int i = 0; i < TOTAL; i++) {
+			sb.setLength(0);
+			t.render(mapper, sb);
+		}
+		System.out.println("benchmark template=" + (System.currentTimeMillis() - begin));
+		// Benchmark Bound Template (slots)
+		final Vocabulary vocabulary = Vocabulary.of(t);
+		final BoundTemplate bt = t.bind(vocabulary);
+		final String[] values = vocabulary.values(mapper);
+		System.out.println(bt.render(values));
+		begin = System.currentTimeMillis();
+		for (int i = 0; i < TOTAL; i++) {
+			sb.setLength(0);
+			bt.render(values, sb);
+		}
+		System.out.println("benchmark bound=" + (System.currentTimeMillis() - begin));
+		System.out.println(getParseCache());
+		// Subclass overriding only post mapping shares parsed tokens
+		final long hits = getParseCache().getHitCount();
+		new MapExpression("Hi ${user.name}, you are ${user.state}!! ${static}", map, true) {
+			@Override
+			String mapTokenPost(final String name) throws InvalidExpression {
+				return name.toUpperCase();
+			}
+		};
+		System.out.println("subclass cached=" + (getParseCache().getHitCount() > hits));
+		// Default, nested and recursive
+		map.put("env", "prod");
+		map.put("db.url.prod", "jdbc://${db.host:-localhost}:${db.port:-5432}/${app}");
+		map.put("app", "${user.name}-app");
+		m = new MapExpression("url=${db.url.${env}} timeout=${db.timeout:-${default.timeout:-30}}", map, true);
+		System.out.println(m.get());
+		map.put("price", "10 ${");
+		m = new MapExpression("malformed value: ${price}", map, true);
+		System.out.println(m.get() + " | " + compile("malformed value: ${price}").render(new MapMapper(map)));
+		// Nested name with unresolved part is unresolved (default applies), empty nested name is invalid
+		map.put("db.null", "wrong");
+		m = new MapExpression("${db.${no.env}:-dflt} ${db.${no.env}}", map, true);
+		System.out.println(m.get() + " | " + compile("${db.${no.env}:-dflt} ${db.${no.env}}").render(new MapMapper(map)));
+		map.put("empty", "");
+		try {
+			new MapExpression("${${empty}}", map, true);
+		} catch (InvalidExpression e) {
+			System.out.println(e);
+		}
+		try {
+			compile("${${empty}}").render(new MapMapper(map));
+		} catch (IllegalArgumentException e) {
+			System.out.println(e);
+		}
+		map.put("loop.a", "${loop.b}");
+		map.put("loop.b", "x${loop.a}");
+		try {
+			new MapExpression("${loop.a}", map, true);
+		} catch (InvalidExpression e) {
+			System.out.println(e);
+		}
 	}
 }
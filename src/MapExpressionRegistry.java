@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Registry of many {@link MapExpression} bound to one {@link MapExpression.Mapper}, with dependency tracking
+ * and incremental re-evaluation. Each expression is compiled once ({@link MapExpression#compile(String)})
+ * and rendered through a recording mapper that collects the keys it reads; the rendered string is cached
+ * until one of those keys changes. Changes are notified with {@link #propertyChanged(String)} (directly or
+ * from {@link MapExpression.ObservableMapMapper}), or detected with {@link #reload()} (for sources without notifications,
+ * like System Properties), so the cost of a change is O(changed) and not O(all).
+ * <p>
+ * Invalidated expressions are re-rendered lazily on next {@link Binding#get()}. Instances are safe for use by
+ * multiple threads (reads of clean bindings are lock-free).
+ */
+public class MapExpressionRegistry implements MapExpression.ChangeListener {
+	private final MapExpression.Mapper mapper;
+	private final RecordingMapper recorder = new RecordingMapper();
+	// key to last seen value and dependent bindings
+	private final HashMap<String, Dependency> dependencies = new HashMap<String, Dependency>();
+	private final HashSet<Binding> bindings = new HashSet<Binding>();
+	private long renderCount = 0;
+
+	/**
+	 * Create registry
+	 *
+	 * @param mapper
+	 *            mapper for parameters
+	 */
+	public MapExpressionRegistry(final MapExpression.Mapper mapper) {
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Register expression (rendered on registration)
+	 *
+	 * @param expression
+	 *            to map
+	 * @return binding to get the (cached) rendered expression
+	 * @throws MapExpression.InvalidExpression
+	 *             if expression is wrong
+	 */
+	public synchronized Binding register(final String expression) throws MapExpression.InvalidExpression {
+		final Binding b = new Binding(this, MapExpression.compile(expression));
+		render(b); // links dependencies only if rendered
+		bindings.add(b);
+		return b;
+	}
+
+	/**
+	 * Unregister expression (binding is no longer updated)
+	 *
+	 * @param b
+	 */
+	public synchronized void unregister(final Binding b) {
+		if (bindings.remove(b)) {
+			link(b, b.keys, null);
+			b.keys = null;
+		}
+	}
+
+	/**
+	 * Notify change of a key, dependent expressions are invalidated
+	 *
+	 * @param key
+	 */
+	@Override
+	public synchronized void propertyChanged(final String key) {
+		final Dependency d = dependencies.get(key);
+		if (d != null) {
+			d.value = mapper.map(key);
+			invalidate(d);
+		}
+	}
+
+	/**
+	 * Re-map all tracked keys and invalidate expressions whose inputs changed (for sources without
+	 * notifications, like System Properties)
+	 *
+	 * @return number of invalidated expressions
+	 */
+	public synchronized int reload() {
+		int count = 0;
+		for (final Map.Entry<String, Dependency> e : dependencies.entrySet()) {
+			final Dependency d = e.getValue();
+			final String value = mapper.map(e.getKey());
+			if ((value == null) ? (d.value != null) : !value.equals(d.value)) {
+				d.value = value;
+				count += invalidate(d);
+			}
+		}
+		return count;
+	}
+
+	private int invalidate(final Dependency d) {
+		int count = 0;
+		for (final Binding b : d.bindings) {
+			if (!b.dirty) {
+				b.dirty = true;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Render binding recording keys read, and update dependencies
+	 */
+	synchronized void render(final Binding b) {
+		if (!b.dirty || (b.keys == null)) // already rendered or unregistered
+			return;
+		recorder.reset();
+		final String value = b.template.render(recorder);
+		final String[] keys = recorder.keys();
+		if (!Arrays.equals(keys, b.keys)) {
+			link(b, b.keys, keys);
+			b.keys = keys;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			final Dependency d = dependencies.get(keys[i]);
+			final String v = recorder.values.get(i);
+			// other dependents saw the old value (clean dependents always saw d.value)
+			if ((v == null) ? (d.value != null) : !v.equals(d.value)) {
+				invalidate(d);
+				d.value = v;
+			}
+		}
+		b.value = value;
+		b.dirty = false;
+		renderCount++;
+	}
+
+	/**
+	 * Move binding from dependencies of old keys to new keys
+	 */
+	private void link(final Binding b, final String[] oldKeys, final String[] newKeys) {
+		if (oldKeys != null) {
+			for (final String key : oldKeys) {
+				final Dependency d = dependencies.get(key);
+				if ((d != null) && d.bindings.remove(b) && d.bindings.isEmpty())
+					dependencies.remove(key);
+			}
+		}
+		if (newKeys != null) {
+			for (final String key : newKeys) {
+				Dependency d = dependencies.get(key);
+				if (d == null) {
+					d = new Dependency();
+					dependencies.put(key, d);
+				}
+				d.bindings.add(b);
+			}
+		}
+	}
+
+	/**
+	 * Returns number of registered expressions
+	 *
+	 * @return
+	 */
+	public synchronized int size() {
+		return bindings.size();
+	}
+
+	/**
+	 * Returns number of tracked keys
+	 *
+	 * @return
+	 */
+	public synchronized int getKeyCount() {
+		return dependencies.size();
+	}
+
+	/**
+	 * Returns number of renders done (registrations and re-evaluations)
+	 *
+	 * @return
+	 */
+	public synchronized long getRenderCount() {
+		return renderCount;
+	}
+
+	/**
+	 * Registered expression with cached rendered value
+	 */
+	public static final class Binding {
+		private final MapExpressionRegistry registry;
+		public final MapExpression.Template template;
+		// distinct keys read by last render (null if unregistered)
+		private String[] keys = new String[0];
+		private volatile String value = null;
+		private volatile boolean dirty = true;
+
+		Binding(final MapExpressionRegistry registry, final MapExpression.Template template) {
+			this.registry = registry;
+			this.template = template;
+		}
+
+		/**
+		 * Get rendered expression (re-rendered only if invalidated)
+		 *
+		 * @return rendered expression
+		 */
+		public String get() {
+			if (dirty)
+				registry.render(this);
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return get();
+		}
+	}
+
+	private static final class Dependency {
+		final HashSet<Binding> bindings = new HashSet<Binding>();
+		// value seen by clean dependents
+		String value;
+	}
+
+	/**
+	 * Mapper that records distinct keys read (and values returned)
+	 */
+	private final class RecordingMapper implements MapExpression.Mapper {
+		final ArrayList<String> keys = new ArrayList<String>();
+		final ArrayList<String> values = new ArrayList<String>();
+
+		void reset() {
+			keys.clear();
+			values.clear();
+		}
+
+		String[] keys() {
+			return keys.toArray(new String[keys.size()]);
+		}
+
+		@Override
+		public String map(final String input) {
+			final String value = mapper.map(input);
+			if (!keys.contains(input)) { // expressions read a few keys
+				keys.add(input);
+				values.add(value);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 * @throws Throwable
+	 */
+	public static void main(final String[] args) throws Throwable {
+		System.setProperty("user.state", "lucky");
+		final MapExpression.ObservableMapMapper map = new MapExpression.ObservableMapMapper(new HashMap<String, String>());
+		map.put("static", "ouh yeah!");
+		final MapExpressionRegistry registry = new MapExpressionRegistry(new MapExpression.MultiMapper().add(map)
+				.add(MapExpression.SystemPropertyMapper.getInstance()));
+		map.addListener(registry);
+		final Binding b = registry.register("Hi ${user.name}, you are ${user.state}!! ${static}");
+		final Binding c = registry.register("Only ${static}");
+		System.out.println(b.get() + " | " + c.get());
+		map.put("static", "wow!");
+		System.out.println(b.get() + " | " + c.get() + " renders=" + registry.getRenderCount());
+		System.setProperty("user.state", "unlucky");
+		System.out.println("reload invalidated=" + registry.reload());
+		System.out.println(b.get() + " | " + c.get() + " renders=" + registry.getRenderCount());
+		// Change without notification seen by a later registration: earlier dependents are stale too
+		final MapExpression.MapMapper plain = new MapExpression.MapMapper(new HashMap<String, String>());
+		final MapExpressionRegistry r2 = new MapExpressionRegistry(plain);
+		plain.map.put("k", "v1");
+		final Binding ba = r2.register("A=${k}");
+		plain.map.put("k", "v2");
+		final Binding bc = r2.register("C=${k}");
+		System.out.println(ba.get() + " " + bc.get() + " reload invalidated=" + r2.reload());
+		// Benchmark: many expressions, one change
+		final int TOTAL = 10000;
+		final Binding[] all = new Binding[TOTAL];
+		for (int i = 0; i < TOTAL; i++) {
+			map.put("key" + i, "value" + i);
+			all[i] = registry.register("${key" + i + "} and ${static}");
+		}
+		long begin = System.currentTimeMillis();
+		for (int n = 0; n < 1000; n++) {
+			map.put("key" + (n % TOTAL), "changed" + n);
+			for (int i = 0; i < TOTAL; i++) {
+				all[i].get();
+			}
+		}
+		System.out.println("benchmark changes=1000 expressions=" + TOTAL + " time="
+				+ (System.currentTimeMillis() - begin) + "ms renders=" + registry.getRenderCount());
+	}
+}
@@ -0,0 +1,309 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Persistent sorted set of MSISDN numbers (encoded with {@link EncoderMSISDN#toLong(String)}) for very large
+ * lists (portability databases, DNC lists...). The file is built offline from a sorted long array with
+ * {@link #write(Path, long[])} and opened instantly with {@link #open(Path)}: data is memory-mapped
+ * (off-heap), only the small header is read into heap.
+ * <p>
+ * File layout (big endian):
+ *
+ * <pre>
+ * header (64 bytes): magic, version, blockSize, count, blockCount, dataOffset, dataLength, indexOffset
+ * data:  per block, (blockSize - 1) deltas from previous number as unsigned varint (LEB128)
+ * index: per block, first number (long) + offset of block in data (long)
+ * </pre>
+ *
+ * Lookups do a binary search on the mapped sparse index and then a short delta scan inside one block.
+ * Instances are immutable and safe for concurrent use.
+ * <p>
+ * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">Varint encoding</a>
+ */
+public final class MsisdnIndex {
+	public static final int DEFAULT_BLOCK_SIZE = 64;
+	private static final long MAGIC = 0x4D534953444E4958L; // "MSISDNIX"
+	private static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 64;
+	private static final int INDEX_ENTRY_LENGTH = 16;
+	private static final int MAX_VARINT_LENGTH = 10;
+	private static final int BUFFER_LENGTH = 64 * 1024;
+	// Data is mapped in segments of 1GB (plus overlap of one block, so a block never crosses segments)
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final int blockSize;
+	private final long count;
+	private final int blockCount;
+	private final ByteBuffer index;
+	private final ByteBuffer[] segments;
+
+	private MsisdnIndex(final int blockSize, final long count, final int blockCount, final ByteBuffer index,
+			final ByteBuffer[] segments) {
+		this.blockSize = blockSize;
+		this.count = count;
+		this.blockCount = blockCount;
+		this.index = index;
+		this.segments = segments;
+	}
+
+	/**
+	 * Open (map) index file, the file channel is closed after mapping
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static MsisdnIndex open(final Path file) throws IOException {
+		try (final FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			while (header.hasRemaining()) {
+				if (ch.read(header, header.position()) < 0)
+					throw new IOException("Invalid index (truncated header): " + file);
+			}
+			header.flip();
+			if ((header.getLong() != MAGIC) || (header.getInt() != VERSION))
+				throw new IOException("Invalid index (bad magic/version): " + file);
+			final int blockSize = header.getInt();
+			final long count = header.getLong();
+			final long blockCount = header.getLong();
+			final long dataOffset = header.getLong();
+			final long dataLength = header.getLong();
+			final long indexOffset = header.getLong();
+			final long indexLength = blockCount * INDEX_ENTRY_LENGTH;
+			if ((blockSize < 1) || (indexLength > Integer.MAX_VALUE)
+					|| (indexOffset + indexLength > ch.size()) || (dataOffset + dataLength > indexOffset))
+				throw new IOException("Invalid index (bad header): " + file);
+			final ByteBuffer index = ch.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexLength);
+			final int segmentCount = (int) ((dataLength + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+			final long overlap = (long) (blockSize - 1) * MAX_VARINT_LENGTH;
+			final ByteBuffer[] segments = new ByteBuffer[segmentCount];
+			for (int i = 0; i < segmentCount; i++) {
+				final long start = ((long) i << SEGMENT_SHIFT);
+				final long size = Math.min(dataLength - start, (1L << SEGMENT_SHIFT) + overlap);
+				segments[i] = ch.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, size);
+			}
+			return new MsisdnIndex(blockSize, count, (int) blockCount, index, segments);
+		}
+	}
+
+	/**
+	 * Write index file with {@link #DEFAULT_BLOCK_SIZE}
+	 *
+	 * @param file
+	 * @param sorted encoded numbers in ascending order (duplicates are removed)
+	 * @return number of (distinct) numbers written
+	 * @throws IOException
+	 */
+	public static long write(final Path file, final long[] sorted) throws IOException {
+		return write(file, sorted, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Write index file
+	 *
+	 * @param file
+	 * @param sorted encoded numbers in ascending order (duplicates are removed)
+	 * @param blockSize numbers per block (bigger blocks make smaller index and longer scans)
+	 * @return number of (distinct) numbers written
+	 * @throws IOException
+	 */
+	public static long write(final Path file, final long[] sorted, final int blockSize) throws IOException {
+		if ((blockSize < 1) || (blockSize > (Integer.MAX_VALUE / MAX_VARINT_LENGTH)))
+			throw new IllegalArgumentException("Invalid blockSize: " + blockSize);
+		// Check order and count distinct
+		long count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i > 0) {
+				if (sorted[i] < sorted[i - 1])
+					throw new IllegalArgumentException("Input not sorted at: " + i);
+				if (sorted[i] == sorted[i - 1])
+					continue;
+			}
+			count++;
+		}
+		final int blockCount = (int) ((count + blockSize - 1) / blockSize);
+		final long[] firsts = new long[blockCount];
+		final long[] offsets = new long[blockCount];
+		try (final FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final ByteBuffer buf = ByteBuffer.allocate(BUFFER_LENGTH);
+			ch.position(HEADER_LENGTH);
+			// Data
+			long dataLength = 0;
+			long prev = 0;
+			int block = 0;
+			int inBlock = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				final long v = sorted[i];
+				if ((i > 0) && (v == prev))
+					continue;
+				if (inBlock == 0) {
+					firsts[block] = v;
+					offsets[block] = dataLength;
+					block++;
+				} else {
+					if (buf.remaining() < MAX_VARINT_LENGTH)
+						flush(ch, buf);
+					dataLength += putVarint(buf, v - prev);
+				}
+				prev = v;
+				if (++inBlock == blockSize)
+					inBlock = 0;
+			}
+			// Sparse index
+			final long indexOffset = HEADER_LENGTH + dataLength;
+			for (int i = 0; i < blockCount; i++) {
+				if (buf.remaining() < INDEX_ENTRY_LENGTH)
+					flush(ch, buf);
+				buf.putLong(firsts[i]).putLong(offsets[i]);
+			}
+			flush(ch, buf);
+			// Header
+			buf.putLong(MAGIC).putInt(VERSION).putInt(blockSize) //
+					.putLong(count).putLong(blockCount) //
+					.putLong(HEADER_LENGTH).putLong(dataLength).putLong(indexOffset);
+			while (buf.position() < HEADER_LENGTH) {
+				buf.put((byte) 0);
+			}
+			buf.flip();
+			long pos = 0;
+			while (buf.hasRemaining()) {
+				pos += ch.write(buf, pos);
+			}
+		}
+		return count;
+	}
+
+	private static void flush(final FileChannel ch, final ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Put unsigned varint
+	 *
+	 * @return number of bytes
+	 */
+	private static int putVarint(final ByteBuffer buf, long v) {
+		int n = 1;
+		while ((v & ~0x7FL) != 0) {
+			buf.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+			n++;
+		}
+		buf.put((byte) v);
+		return n;
+	}
+
+	/**
+	 * Check membership of encoded number
+	 *
+	 * @param msisdn encoded number
+	 * @return
+	 */
+	public boolean contains(final long msisdn) {
+		if ((blockCount == 0) || (index.getLong(0) > msisdn))
+			return false;
+		// Last block with first number <= msisdn
+		int lo = 0;
+		int hi = blockCount - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (index.getLong(mid * INDEX_ENTRY_LENGTH) <= msisdn) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		long value = index.getLong(lo * INDEX_ENTRY_LENGTH);
+		if (value == msisdn)
+			return true;
+		// Delta scan
+		final int deltas = (int) Math.min(blockSize, count - (long) lo * blockSize) - 1;
+		if (deltas <= 0)
+			return false;
+		final long offset = index.getLong(lo * INDEX_ENTRY_LENGTH + 8);
+		final ByteBuffer segment = segments[(int) (offset >>> SEGMENT_SHIFT)];
+		int p = (int) (offset & SEGMENT_MASK);
+		for (int i = 0; i < deltas; i++) {
+			long delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = segment.get(p++);
+				delta |= ((long) (b & 0x7F)) << shift;
+				shift += 7;
+			} while (b < 0);
+			value += delta;
+			if (value >= msisdn)
+				return (value == msisdn);
+		}
+		return false;
+	}
+
+	/**
+	 * Check membership of number
+	 *
+	 * @param msisdn number (like "+34655123456")
+	 * @return
+	 */
+	public boolean contains(final String msisdn) {
+		final long value = EncoderMSISDN.toLong(msisdn);
+		return (value >= 0) && contains(value);
+	}
+
+	/**
+	 * Returns number of (distinct) numbers in index
+	 *
+	 * @return
+	 */
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 */
+	public static void main(final String[] args) throws Throwable {
+		final java.util.Random r = new java.util.Random(1);
+		final long[] values = new long[5000000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 134600000000L + r.nextInt(100000000);
+		}
+		Arrays.sort(values);
+		final File file = File.createTempFile("msisdn", ".idx");
+		file.deleteOnExit();
+		long begin = System.currentTimeMillis();
+		final long count = write(file.toPath(), values);
+		System.out.println("write count=" + count + " size=" + file.length() + " bytes/number="
+				+ ((float) file.length() / count) + " time=" + (System.currentTimeMillis() - begin) + "ms");
+		begin = System.currentTimeMillis();
+		final MsisdnIndex idx = open(file.toPath());
+		System.out.println("open time=" + (System.currentTimeMillis() - begin) + "ms");
+		int errors = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (!idx.contains(values[i]))
+				errors++;
+		}
+		begin = System.currentTimeMillis();
+		for (int i = 0; i < 5000000; i++) {
+			final long v = 134600000000L + r.nextInt(100000000);
+			if (idx.contains(v) != (Arrays.binarySearch(values, v) >= 0))
+				errors++;
+		}
+		System.out.println("lookups errors=" + errors + " time=" + (System.currentTimeMillis() - begin) + "ms");
+		System.out.println(idx.contains("+34600000000") + " " + idx.contains(values[0]) + " "
+				+ idx.contains(values[0] - 1) + " " + idx.contains(Long.MAX_VALUE));
+	}
+}
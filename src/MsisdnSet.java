@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Immutable set of MSISDN numbers (encoded with {@link EncoderMSISDN#toLong(String)}) backed by a single
+ * primitive long array (8 bytes per number, no boxing). Numbers are sorted, deduplicated and stored in
+ * Eytzinger (BFS) layout, so the first levels of the implicit search tree share a few cache lines and
+ * lookups are branch-free binary searches.
+ * <p>
+ * <a href="https://arxiv.org/abs/1509.05053">Array Layouts for Comparison-Based Searching</a>
+ */
+public final class MsisdnSet {
+	// 1-based Eytzinger layout: children of k are 2k and 2k+1 (index 0 is unused)
+	private final long[] tree;
+	private final int size;
+
+	/**
+	 * Create set from encoded numbers (array is not modified, duplicates are removed)
+	 *
+	 * @param values encoded numbers
+	 */
+	public MsisdnSet(final long[] values) {
+		final long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		int n = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if ((n == 0) || (sorted[n - 1] != sorted[i]))
+				sorted[n++] = sorted[i];
+		}
+		this.size = n;
+		this.tree = new long[n + 1];
+		fill(sorted, 0, 1);
+	}
+
+	/**
+	 * Create set from a CSV or line stream of MSISDN (see {@link EncoderMSISDN#toLongs(Reader)})
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static MsisdnSet parse(final Reader in) throws IOException {
+		return new MsisdnSet(EncoderMSISDN.toLongs(in));
+	}
+
+	/**
+	 * In-order traversal of implicit tree (copy sorted values into layout)
+	 *
+	 * @return next index in sorted
+	 */
+	private int fill(final long[] sorted, int i, final int k) {
+		if (k <= size) {
+			i = fill(sorted, i, k << 1);
+			tree[k] = sorted[i++];
+			i = fill(sorted, i, (k << 1) | 1);
+		}
+		return i;
+	}
+
+	/**
+	 * In-order traversal of implicit tree (copy layout into sorted values)
+	 *
+	 * @return next index in sorted
+	 */
+	private int drain(final long[] sorted, int i, final int k) {
+		if (k <= size) {
+			i = drain(sorted, i, k << 1);
+			sorted[i++] = tree[k];
+			i = drain(sorted, i, (k << 1) | 1);
+		}
+		return i;
+	}
+
+	/**
+	 * Check membership of encoded number
+	 *
+	 * @param msisdn encoded number
+	 * @return
+	 */
+	public boolean contains(final long msisdn) {
+		final long[] t = tree;
+		final int n = size;
+		int k = 1;
+		while (k <= n) {
+			k = (k << 1) | ((t[k] < msisdn) ? 1 : 0);
+		}
+		// Remove the trailing right turns (and the last left turn) to get the lower bound
+		k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+		return (k != 0) && (t[k] == msisdn);
+	}
+
+	/**
+	 * Check membership of number
+	 *
+	 * @param msisdn number (like "+34655123456")
+	 * @return
+	 */
+	public boolean contains(final String msisdn) {
+		final long value = EncoderMSISDN.toLong(msisdn);
+		return (value >= 0) && contains(value);
+	}
+
+	/**
+	 * Returns number of (distinct) numbers in set
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns encoded numbers in ascending order (new array)
+	 *
+	 * @return
+	 */
+	public long[] toSortedArray() {
+		final long[] sorted = new long[size];
+		drain(sorted, 0, 1);
+		return sorted;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args
+	 */
+	public static void main(final String[] args) throws Throwable {
+		final String text = "+34655123456\n677123456\n+34655123456\n+0035688123456\n";
+		final MsisdnSet set = parse(new java.io.StringReader(text));
+		System.out.println(set.size() + " " + Arrays.toString(set.toSortedArray()));
+		System.out.println(set.contains("677123456") + " " + set.contains("+34655123456") + " "
+				+ set.contains("+34655123457") + " " + set.contains("x"));
+		// Random
+		final java.util.Random r = new java.util.Random(1);
+		final long[] values = new long[1000000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 134600000000L + r.nextInt(100000000);
+		}
+		final MsisdnSet big = new MsisdnSet(values);
+		final long[] sorted = big.toSortedArray();
+		int errors = 0;
+		for (int i = 0; i < 1000000; i++) {
+			final long v = 134600000000L + r.nextInt(100000000);
+			if (big.contains(v) != (Arrays.binarySearch(sorted, v) >= 0))
+				errors++;
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (!big.contains(values[i]))
+				errors++;
+		}
+		System.out.println("size=" + big.size() + " errors=" + errors);
+	}
+}
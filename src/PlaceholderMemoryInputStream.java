@@ -3,15 +3,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Properties;
 
 /**
  * Like Spring context:property-placeholder for XML but for generic InputStream. This implementation read all
  * inputstream in memory and uses MapExpression for resolve placeholders.
+ * <p>
+ * For ASCII-compatible charsets (UTF-8, US-ASCII, ISO-8859-*, windows-125*), placeholders are found directly
+ * in bytes (no String decoding/encoding) and the result is a gather list of slices of the original content
+ * plus encoded values (see {@link #substitute(ByteBuffer, PlaceholderMapper, Charset)}).
  */
 public class PlaceholderMemoryInputStream extends InputStream {
 	public static final String ENABLE_TAG = "ENABLE-STREAM-PLACEHOLDER";
 	public static final int ENABLE_TAG_DEEP = 64;
+	private static final byte[] ENABLE_TAG_BYTES = ENABLE_TAG.getBytes(Charset.forName("US-ASCII"));
+	private static final int BUFFER_LENGTH = 4096;
+	private static final ByteBuffer NOT_FOUND = ByteBuffer.allocate(0);
 	final InputStream is;
 
 	/**
@@ -60,24 +72,213 @@ public class PlaceholderMemoryInputStream extends InputStream {
 		this.is = wrap(is, mapper, useCommentForEnabling);
 	}
 
+	/**
+	 * Same as {@link #PlaceholderMemoryInputStream(InputStream, PlaceholderMapper, boolean)} with the
+	 * charset of stream (instead of platform default charset)
+	 * 
+	 * @param is the original InputStream
+	 * @param mapper
+	 * @param useCommentForEnabling true for conditional parsing, false=always parse
+	 * @param charset of stream and values
+	 * @throws IOException
+	 */
+	public PlaceholderMemoryInputStream(final InputStream is, final PlaceholderMapper mapper,
+			final boolean useCommentForEnabling, final Charset charset) throws IOException {
+		this.is = wrap(is, mapper, useCommentForEnabling, charset);
+	}
+
 	protected InputStream wrap(final InputStream is, final PlaceholderMapper mapper,
 			final boolean useCommentForEnabling) throws IOException {
-		String content = readFully(is);
+		return wrap(is, mapper, useCommentForEnabling, Charset.defaultCharset());
+	}
+
+	protected InputStream wrap(final InputStream is, final PlaceholderMapper mapper,
+			final boolean useCommentForEnabling, final Charset charset) throws IOException {
+		if (useByteSubstitution(charset)) {
+			final ByteBuffer content = readFullyBytes(is);
+			if (useCommentForEnabling && !hasEnableTag(content))
+				return new GatherInputStream(new ByteBuffer[] { content });
+			return new GatherInputStream(substitute(content, mapper, charset));
+		}
+		String content = readFully(is, charset);
 		if (useCommentForEnabling) {
 			if (content.substring(0, Math.min(content.length(), ENABLE_TAG_DEEP)).indexOf(ENABLE_TAG) != -1)
 				content = rewrite(content, mapper);
 		} else {
 			content = rewrite(content, mapper);
 		}
-		return new ByteArrayInputStream(content.getBytes());
+		return new ByteArrayInputStream(content.getBytes(charset));
+	}
+
+	/**
+	 * Returns true to substitute placeholders in bytes (see
+	 * {@link #substitute(ByteBuffer, PlaceholderMapper, Charset)}), false to use the String based
+	 * {@link #readFully(InputStream, Charset)} and {@link #rewrite(String, PlaceholderMapper)}. Default is
+	 * true for ASCII-compatible charsets; subclasses that override readFully or rewrite must return false.
+	 * Called from constructor, before subclass fields are initialized.
+	 * 
+	 * @param charset of stream
+	 * @return
+	 */
+	protected boolean useByteSubstitution(final Charset charset) {
+		return isAsciiCompatible(charset);
+	}
+
+	/**
+	 * Check if "$", "{" and "}" are always single bytes (never part of a multibyte sequence) in charset
+	 * 
+	 * @param charset
+	 * @return
+	 */
+	static boolean isAsciiCompatible(final Charset charset) {
+		final String name = charset.name();
+		return name.equals("UTF-8") || name.equals("US-ASCII") || name.startsWith("ISO-8859-")
+				|| name.startsWith("windows-125");
+	}
+
+	/**
+	 * Search enable tag in first {@link #ENABLE_TAG_DEEP} bytes
+	 */
+	private static boolean hasEnableTag(final ByteBuffer content) {
+		final int end = content.position() + Math.min(content.remaining(), ENABLE_TAG_DEEP);
+		final byte[] tag = ENABLE_TAG_BYTES;
+		for (int i = content.position(); i <= end - tag.length; i++) {
+			int j = 0;
+			while ((j < tag.length) && (content.get(i + j) == tag[j])) {
+				j++;
+			}
+			if (j == tag.length)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Read all bytes of InputStream (closed at end)
+	 * 
+	 * @param is
+	 * @return heap buffer with all bytes
+	 * @throws IOException
+	 */
+	protected ByteBuffer readFullyBytes(final InputStream is) throws IOException {
+		try {
+			// available() is exact for in-memory and file streams (+1 to detect EOF without growing)
+			byte[] buf = new byte[Math.max(BUFFER_LENGTH, is.available() + 1)];
+			int len = 0;
+			int read = 0;
+			while ((read = is.read(buf, len, buf.length - len)) != -1) {
+				len += read;
+				if (len == buf.length)
+					buf = Arrays.copyOf(buf, buf.length << 1);
+			}
+			return ByteBuffer.wrap(buf, 0, len);
+		} finally {
+			try {
+				is.close();
+			} catch (Exception ign) {
+			}
+		}
+	}
+
+	/**
+	 * Substitute placeholders in bytes (from position to limit) without decoding content, unresolved
+	 * placeholders are left untouched (like {@link #rewrite(String, PlaceholderMapper)}). The charset must be
+	 * ASCII-compatible.
+	 * 
+	 * @param content
+	 *            original content (not modified, position is not changed)
+	 * @param mapper
+	 * @param charset
+	 *            of content, for decoding names and encoding values
+	 * @return gather list of slices of content and encoded values
+	 * @throws IOException
+	 *             if a placeholder is not well ended
+	 */
+	public static ByteBuffer[] substitute(final ByteBuffer content, final PlaceholderMapper mapper,
+			final Charset charset) throws IOException {
+		final ArrayList<ByteBuffer> out = new ArrayList<ByteBuffer>();
+		// encoded value by name (names are usually repeated)
+		final HashMap<String, ByteBuffer> values = new HashMap<String, ByteBuffer>();
+		final int begin = content.position();
+		final int len = content.limit();
+		int last = begin;
+		for (int i = begin; (i = indexOf(content, (byte) '$', i, len)) >= 0; i++) {
+			if ((i + 1) < len) {
+				if (content.get(++i) == '{') {
+					final int nameBegin = i + 1;
+					int end = indexOf(content, (byte) '}', nameBegin, len);
+					if (end < 0)
+						throw new IOException(new MapExpressionSimple.InvalidExpression(
+								"Not well ended expression: " + decode(content, i - 1, len, charset), len - begin));
+					final String name = decode(content, nameBegin, end, charset);
+					ByteBuffer value = values.get(name);
+					if (value == null) {
+						final String v = mapper.mapPlaceHolder(name);
+						value = ((v == null) ? NOT_FOUND : ByteBuffer.wrap(v.getBytes(charset)));
+						values.put(name, value);
+					}
+					if (value != NOT_FOUND) {
+						if (last < (i - 1))
+							out.add(slice(content, last, i - 1));
+						out.add(value.duplicate());
+						last = end + 1;
+					}
+					i = end;
+				}
+			}
+		}
+		if ((last < len) || out.isEmpty())
+			out.add(slice(content, last, len));
+		return out.toArray(new ByteBuffer[out.size()]);
+	}
+
+	/**
+	 * Find byte in content (absolute indexes)
+	 * 
+	 * @return index or -1 if not found
+	 */
+	private static int indexOf(final ByteBuffer content, final byte b, final int from, final int to) {
+		if (content.hasArray()) {
+			final byte[] array = content.array();
+			final int offset = content.arrayOffset();
+			for (int i = from + offset, end = to + offset; i < end; i++) {
+				if (array[i] == b)
+					return (i - offset);
+			}
+			return -1;
+		}
+		for (int i = from; i < to; i++) {
+			if (content.get(i) == b)
+				return i;
+		}
+		return -1;
+	}
+
+	private static ByteBuffer slice(final ByteBuffer content, final int begin, final int end) {
+		if (content.hasArray() && !content.isReadOnly())
+			return ByteBuffer.wrap(content.array(), content.arrayOffset() + begin, end - begin);
+		final ByteBuffer dup = content.duplicate();
+		dup.limit(end).position(begin);
+		return dup.slice();
+	}
+
+	private static String decode(final ByteBuffer content, final int begin, final int end,
+			final Charset charset) {
+		if (content.hasArray())
+			return new String(content.array(), content.arrayOffset() + begin, end - begin, charset);
+		return charset.decode(slice(content, begin, end)).toString();
 	}
 
 	protected String readFully(final InputStream is) throws IOException {
+		return readFully(is, Charset.defaultCharset());
+	}
+
+	protected String readFully(final InputStream is, final Charset charset) throws IOException {
 		Reader in = null;
 		try {
 			final StringBuilder sb = new StringBuilder(1024);
 			final char[] buf = new char[1024];
-			in = new InputStreamReader(is);
+			in = new InputStreamReader(is, charset);
 			int len = -1;
 			while ((len = in.read(buf)) != -1) {
 				sb.append(buf, 0, len);
@@ -163,6 +364,110 @@ public class PlaceholderMemoryInputStream extends InputStream {
 		public String mapPlaceHolder(final String name);
 	}
 
+	/**
+	 * InputStream over a gather list of ByteBuffers (read in order, buffers positions are advanced)
+	 */
+	public static class GatherInputStream extends InputStream {
+		private final ByteBuffer[] buffers;
+		// initial positions (for reset)
+		private final int[] starts;
+		private int current = 0;
+		private int markBuffer = 0;
+		private int markPosition = 0;
+
+		public GatherInputStream(final ByteBuffer[] buffers) {
+			this.buffers = buffers;
+			this.starts = new int[buffers.length];
+			for (int i = 0; i < buffers.length; i++) {
+				starts[i] = buffers[i].position();
+			}
+			if (buffers.length > 0)
+				markPosition = starts[0];
+		}
+
+		/**
+		 * Returns current buffer with remaining bytes, or null at end
+		 */
+		private ByteBuffer next() {
+			while (current < buffers.length) {
+				final ByteBuffer buf = buffers[current];
+				if (buf.hasRemaining())
+					return buf;
+				current++;
+			}
+			return null;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final ByteBuffer buf = next();
+			return ((buf == null) ? -1 : (buf.get() & 0xFF));
+		}
+
+		@Override
+		public int read(final byte[] b, int off, int len) throws IOException {
+			if ((off < 0) || (len < 0) || (off > b.length - len))
+				throw new IndexOutOfBoundsException();
+			if (len == 0)
+				return 0;
+			int total = 0;
+			ByteBuffer buf;
+			while ((len > 0) && ((buf = next()) != null)) {
+				final int n = Math.min(len, buf.remaining());
+				buf.get(b, off, n);
+				off += n;
+				len -= n;
+				total += n;
+			}
+			return ((total == 0) ? -1 : total);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long total = 0;
+			ByteBuffer buf;
+			while ((n > 0) && ((buf = next()) != null)) {
+				final int k = (int) Math.min(n, buf.remaining());
+				buf.position(buf.position() + k);
+				n -= k;
+				total += k;
+			}
+			return total;
+		}
+
+		@Override
+		public int available() throws IOException {
+			long total = 0;
+			for (int i = current; i < buffers.length; i++) {
+				total += buffers[i].remaining();
+			}
+			return (int) Math.min(total, Integer.MAX_VALUE);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(final int readlimit) {
+			next();
+			markBuffer = current;
+			markPosition = ((current < buffers.length) ? buffers[current].position() : 0);
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			final int end = Math.min(current, buffers.length - 1);
+			for (int i = end; i > markBuffer; i--) {
+				buffers[i].position(starts[i]);
+			}
+			if (markBuffer < buffers.length)
+				buffers[markBuffer].position(markPosition);
+			current = markBuffer;
+		}
+	}
+
 	/**
 	 * Simple Test
 	 */
@@ -197,5 +502,30 @@ public class PlaceholderMemoryInputStream extends InputStream {
 		final byte[] bb = new byte[4096];
 		final int read = is.read(bb);
 		System.out.println(new String(bb, 0, read));
+		// Gather list (bytes, UTF-8)
+		final Charset utf8 = Charset.forName("UTF-8");
+		final ByteBuffer[] list = substitute(ByteBuffer.wrap("a=${ph1} b=${ph3} \u00f1=${ph2}".getBytes(utf8)),
+				mapper, utf8);
+		System.out.println(list.length + " " + new String(toByteArray(new GatherInputStream(list)), utf8));
+		// Subclass overriding rewrite opts out of byte substitution
+		final PlaceholderMemoryInputStream upper = new PlaceholderMemoryInputStream(
+				new ByteArrayInputStream("a=${ph1}".getBytes(utf8)), mapper, false, utf8) {
+			@Override
+			protected boolean useByteSubstitution(final Charset charset) {
+				return false;
+			}
+
+			@Override
+			protected String rewrite(final String input, final PlaceholderMapper mapper) throws IOException {
+				return super.rewrite(input, mapper).toUpperCase();
+			}
+		};
+		System.out.println(new String(bb, 0, upper.read(bb), utf8));
+	}
+
+	private static byte[] toByteArray(final GatherInputStream in) throws IOException {
+		final byte[] b = new byte[in.available()];
+		in.read(b);
+		return b;
 	}
 }
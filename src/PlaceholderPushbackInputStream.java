@@ -1,24 +1,45 @@
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
 import java.util.Properties;
 
 /**
- * Like Spring context:property-placeholder for XML but for generic InputStream. This implementation uses
- * PushbackInputStream for rewrite InputStream on-fly.
+ * Like Spring context:property-placeholder for XML but for generic InputStream. This implementation rewrite
+ * InputStream on-fly (streaming) in constant memory: bytes are scanned in a fixed input buffer, literal runs
+ * are copied in bulk to caller buffer, and the substituted value (of any size) is copied directly from its
+ * encoded bytes. Nothing is allocated per read (only per placeholder: name and encoded value).
+ * <p>
+ * Placeholders are found in bytes, the charset (of names and values) must be ASCII-compatible. Unresolved
+ * placeholders, and placeholders not ended at EOF, are left untouched. Placeholders with names longer than
+ * {@link #MAX_NAME_LENGTH} are left untouched too, up to and including the closing '}' (nothing inside is
+ * substituted).
  */
 public class PlaceholderPushbackInputStream extends InputStream {
 	public static final String ENABLE_TAG = "ENABLE-STREAM-PLACEHOLDER";
 	public static final int ENABLE_TAG_DEEP = 64;
 	public static final int BUFFER_LENGTH = 4096;
+	public static final int MAX_NAME_LENGTH = BUFFER_LENGTH - 3;
+	private static final byte[] ENABLE_TAG_BYTES = ENABLE_TAG.getBytes(Charset.forName("US-ASCII"));
 	//
-	final PushbackInputStream is;
+	final InputStream is;
 	final PlaceholderMapper mapper;
 	final boolean useCommentForEnabling;
-	//
-	final StringBuilder unreadBuffer = new StringBuilder();
-	final StringBuilder placeHolderBuffer = new StringBuilder();
+	final Charset charset;
+	// input buffer
+	final byte[] in = new byte[BUFFER_LENGTH];
+	int inPos = 0;
+	int inLimit = 0;
+	boolean eof = false;
+	// "${" + name + "}" (for unresolved placeholders)
+	final byte[] name = new byte[BUFFER_LENGTH];
+	int nameLength = 0;
+	// pending output (value, unresolved placeholder or "$" escape)
+	final byte[] escape = new byte[2];
+	byte[] pending = null;
+	int pendingPos = 0;
+	int pendingLimit = 0;
+	final byte[] single = new byte[1];
 	//
 	boolean skipProcessing = false;
 	State state = null;
@@ -68,64 +89,168 @@ public class PlaceholderPushbackInputStream extends InputStream {
 	 */
 	public PlaceholderPushbackInputStream(final InputStream is, final PlaceholderMapper mapper,
 			final boolean useCommentForEnabling) throws IOException {
-		this.is = new PushbackInputStream(is, BUFFER_LENGTH);
+		this(is, mapper, useCommentForEnabling, Charset.defaultCharset());
+	}
+
+	/**
+	 * Same as {@link #PlaceholderPushbackInputStream(InputStream, PlaceholderMapper, boolean)} with the
+	 * charset of stream (instead of platform default charset)
+	 * 
+	 * @param is the original InputStream
+	 * @param mapper
+	 * @param useCommentForEnabling true for conditional parsing, false=always parse
+	 * @param charset of names and values (ASCII-compatible)
+	 * @throws IOException
+	 */
+	public PlaceholderPushbackInputStream(final InputStream is, final PlaceholderMapper mapper,
+			final boolean useCommentForEnabling, final Charset charset) throws IOException {
+		this.is = is;
 		this.mapper = mapper;
 		this.useCommentForEnabling = useCommentForEnabling;
+		this.charset = charset;
 		this.state = (useCommentForEnabling ? State.WANT_TAG : State.WANT_DOLAR_SIGN);
+		name[0] = '$';
+		name[1] = '{';
 	}
 
 	/**
-	 * Internal logic for processing of bytes
+	 * Fill input buffer (blocking)
 	 * 
-	 * @param b
+	 * @return false on EOF
 	 * @throws IOException
 	 */
-	protected void processByte(final int b) throws IOException {
+	private boolean fill() throws IOException {
+		if (eof)
+			return false;
+		final int read = is.read(in, 0, in.length);
+		if (read < 0) {
+			eof = true;
+			return false;
+		}
+		inPos = 0;
+		inLimit = read;
+		return true;
+	}
+
+	private void setPending(final byte[] buf, final int len) {
+		pending = buf;
+		pendingPos = 0;
+		pendingLimit = len;
+	}
+
+	/**
+	 * Placeholder not ended at EOF: output "${" + name as is
+	 */
+	private void unendedPlaceholder() {
+		setPending(name, nameLength + 2);
+		state = State.WANT_DOLAR_SIGN;
+	}
+
+	/**
+	 * Placeholder ended: output value or "${" + name + "}" if not found
+	 */
+	private void endPlaceholder() {
+		final String value = mapper.mapPlaceHolder(new String(name, 2, nameLength, charset));
+		if (value == null) {
+			name[nameLength + 2] = '}';
+			setPending(name, nameLength + 3);
+		} else {
+			final byte[] bytes = value.getBytes(charset);
+			setPending(bytes, bytes.length);
+		}
+		state = State.WANT_DOLAR_SIGN;
+	}
+
+	/**
+	 * Internal logic for processing of input buffer
+	 * 
+	 * @param b output buffer
+	 * @param off output offset
+	 * @param len max output length
+	 * @return bytes written to output (may be zero if only input was consumed)
+	 */
+	protected int process(final byte[] b, final int off, final int len) {
+		final byte[] in = this.in;
 		switch (state) {
-			case WANT_TAG:
-				unreadBuffer.append((char) b);
-				if (++currentDeep > ENABLE_TAG_DEEP) {
-					skipProcessing = true;
-					break;
-				}
-				if (b == ENABLE_TAG.charAt(currentMatchTag)) {
-					if (++currentMatchTag >= ENABLE_TAG.length()) {
+			case WANT_TAG: {
+				final int c = in[inPos++];
+				b[off] = (byte) c;
+				if (c == ENABLE_TAG_BYTES[currentMatchTag]) {
+					if (++currentMatchTag >= ENABLE_TAG_BYTES.length)
 						state = State.WANT_DOLAR_SIGN;
-					}
 				} else {
-					currentMatchTag = 0;
+					currentMatchTag = ((c == ENABLE_TAG_BYTES[0]) ? 1 : 0);
 				}
-				break;
-			case WANT_DOLAR_SIGN:
-				if (b == '$') {
+				if ((state == State.WANT_TAG) && (++currentDeep >= ENABLE_TAG_DEEP))
+					skipProcessing = true;
+				return 1;
+			}
+			case WANT_DOLAR_SIGN: {
+				// copy literal run until '$'
+				final int end = inPos + Math.min(len, inLimit - inPos);
+				int i = inPos;
+				while ((i < end) && (in[i] != '$')) {
+					i++;
+				}
+				final int n = i - inPos;
+				System.arraycopy(in, inPos, b, off, n);
+				inPos = i;
+				if ((i < end) && (in[i] == '$')) {
+					inPos++;
 					state = State.WANT_BRACE_BEGIN;
-				} else {
-					unreadBuffer.append((char) b);
 				}
-				break;
-			case WANT_BRACE_BEGIN:
-				if (b == '{') {
+				return n;
+			}
+			case WANT_BRACE_BEGIN: {
+				final byte c = in[inPos++];
+				if (c == '{') {
+					nameLength = 0;
 					state = State.WANT_BRACE_END;
 				} else {
-					state = State.WANT_BRACE_BEGIN;
-					unreadBuffer.append((char) b);
+					// "$" and next byte are output as is
+					escape[0] = '$';
+					escape[1] = c;
+					setPending(escape, 2);
+					state = State.WANT_DOLAR_SIGN;
+				}
+				return 0;
+			}
+			case WANT_BRACE_END: {
+				int i = inPos;
+				while ((i < inLimit) && (in[i] != '}')) {
+					i++;
 				}
-				break;
-			case WANT_BRACE_END:
-				if (b == '}') {
+				final int n = Math.min(i - inPos, MAX_NAME_LENGTH - nameLength);
+				System.arraycopy(in, inPos, name, nameLength + 2, n);
+				nameLength += n;
+				inPos += n;
+				if (inPos < i) { // name too long: output "${" + name and the rest as is
+					setPending(name, nameLength + 2);
+					state = State.SKIP_NAME;
+				} else if (i < inLimit) {
+					inPos++; // '}'
+					endPlaceholder();
+				}
+				return 0;
+			}
+			case SKIP_NAME: {
+				// copy rest of name until '}' (inclusive)
+				final int end = inPos + Math.min(len, inLimit - inPos);
+				int i = inPos;
+				while ((i < end) && (in[i] != '}')) {
+					i++;
+				}
+				if (i < end) {
+					i++; // '}'
 					state = State.WANT_DOLAR_SIGN;
-					final String propName = placeHolderBuffer.toString();
-					String value = mapper.mapPlaceHolder(propName);
-					if (value == null)
-						value = "${" + propName + "}";
-					System.out.println("mapping name=" + propName + " value=" + value);
-					unreadBuffer.append(value);
-					placeHolderBuffer.setLength(0);
-				} else {
-					placeHolderBuffer.append((char) b);
 				}
-				break;
+				final int n = i - inPos;
+				System.arraycopy(in, inPos, b, off, n);
+				inPos = i;
+				return n;
+			}
 		}
+		return 0;
 	}
 
 	@Override
@@ -135,75 +260,82 @@ public class PlaceholderPushbackInputStream extends InputStream {
 
 	@Override
 	public int available() throws IOException {
-		return is.available();
-	}
-
-	@Override
-	public int read() throws IOException {
-		if (skipProcessing)
-			return is.read();
-		processByte(is.read());
-		if (unreadBuffer.length() > 0) {
-			is.unread(unreadBuffer.toString().getBytes());
-			unreadBuffer.setLength(0);
-		}
-		return is.read();
-	}
-
-	@Override
-	public int read(final byte[] b) throws IOException {
-		if (skipProcessing)
-			return is.read(b);
-		if (b != null) {
-			final byte[] buf = new byte[b.length];
-			int read = is.read(buf);
-			for (int i = 0; i < read; i++) {
-				processByte(buf[i]);
-			}
-			if (unreadBuffer.length() > 0) {
-				is.unread(unreadBuffer.toString().getBytes());
-				unreadBuffer.setLength(0);
-			}
-		}
-		return is.read(b);
-	}
-
-	@Override
-	public int read(final byte[] b, final int off, final int len) throws IOException {
+		// only bytes that are known to be output
+		int count = pendingLimit - pendingPos;
 		if (skipProcessing)
-			return is.read(b, off, len);
-		if (b != null) {
-			final byte[] buf = new byte[len];
-			int read = is.read(buf);
-			for (int i = 0; i < read; i++) {
-				processByte(buf[i]);
+			return count + (inLimit - inPos) + is.available();
+		if (state == State.WANT_DOLAR_SIGN) {
+			for (int i = inPos; (i < inLimit) && (in[i] != '$'); i++) {
+				count++;
 			}
-			if (unreadBuffer.length() > 0) {
-				is.unread(unreadBuffer.toString().getBytes());
-				unreadBuffer.setLength(0);
+		} else if (state == State.SKIP_NAME) {
+			for (int i = inPos; i < inLimit; i++) {
+				count++;
+				if (in[i] == '}')
+					break;
 			}
 		}
-		return is.read(b, off, len);
-	}
-
-	@Override
-	public long skip(final long n) throws IOException {
-		return is.skip(n);
+		return count;
 	}
 
 	@Override
-	public boolean markSupported() {
-		return is.markSupported();
+	public int read() throws IOException {
+		final int read = read(single, 0, 1);
+		return ((read <= 0) ? -1 : (single[0] & 0xFF));
 	}
 
 	@Override
-	public synchronized void mark(final int readlimit) {
-		is.mark(readlimit);
+	public int read(final byte[] b) throws IOException {
+		return read(b, 0, b.length);
 	}
 
 	@Override
-	public synchronized void reset() throws IOException {
-		is.reset();
+	public int read(final byte[] b, int off, int len) throws IOException {
+		if ((off < 0) || (len < 0) || (off > b.length - len))
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		int total = 0;
+		while (len > 0) {
+			int n;
+			if (pendingPos < pendingLimit) {
+				n = Math.min(len, pendingLimit - pendingPos);
+				System.arraycopy(pending, pendingPos, b, off, n);
+				pendingPos += n;
+				if (pendingPos == pendingLimit)
+					pending = null;
+			} else if (inPos < inLimit) {
+				if (skipProcessing) {
+					n = Math.min(len, inLimit - inPos);
+					System.arraycopy(in, inPos, b, off, n);
+					inPos += n;
+				} else {
+					n = process(b, off, len);
+				}
+			} else {
+				// do not block if there is something to return
+				if ((total > 0) || !fill()) {
+					if (eof && (total == 0) && !skipProcessing) {
+						// flush partial placeholder
+						if (state == State.WANT_BRACE_BEGIN) {
+							escape[0] = '$';
+							setPending(escape, 1);
+							state = State.WANT_DOLAR_SIGN;
+							continue;
+						} else if (state == State.WANT_BRACE_END) {
+							unendedPlaceholder();
+							continue;
+						}
+					}
+					break;
+				}
+				continue;
+			}
+			off += n;
+			len -= n;
+			total += n;
+		}
+		return ((total == 0) ? -1 : total);
 	}
 
 	/**
@@ -211,7 +343,7 @@ public class PlaceholderPushbackInputStream extends InputStream {
 	 */
 	private static enum State {
 		/**
-		 * we are searching tag
+		 * we are searching tag (in first {@link PlaceholderPushbackInputStream#ENABLE_TAG_DEEP} bytes)
 		 * 
 		 * @see PlaceholderPushbackInputStream#ENABLE_TAG
 		 */
@@ -227,7 +359,11 @@ public class PlaceholderPushbackInputStream extends InputStream {
 		/**
 		 * we expect last '}'
 		 */
-		WANT_BRACE_END;
+		WANT_BRACE_END,
+		/**
+		 * name too long, we output as is until last '}'
+		 */
+		SKIP_NAME;
 	}
 
 	/**
@@ -271,5 +407,32 @@ public class PlaceholderPushbackInputStream extends InputStream {
 		final byte[] bb = new byte[4096];
 		final int read = is.read(bb);
 		System.out.println(new String(bb, 0, read));
+		// Value bigger than buffers, read byte by byte
+		final StringBuilder big = new StringBuilder();
+		while (big.length() < 3 * BUFFER_LENGTH) {
+			big.append("0123456789");
+		}
+		base.setProperty("big", big.toString());
+		final PlaceholderPushbackInputStream is2 = new PlaceholderPushbackInputStream(
+				new ByteArrayInputStream("[${big}] [${ph2}] $$ ${ph1".getBytes()), mapper, false);
+		int count = 0;
+		final StringBuilder sb = new StringBuilder();
+		int c;
+		while ((c = is2.read()) != -1) {
+			if (count++ < 4 || count > big.length())
+				sb.append((char) c);
+		}
+		System.out.println(count + " " + sb);
+		// Name longer than MAX_NAME_LENGTH is left untouched (with placeholders inside)
+		final String longName = "${" + big + "${ph1}} ${ph2}";
+		final PlaceholderPushbackInputStream is3 = new PlaceholderPushbackInputStream(
+				new ByteArrayInputStream(longName.getBytes()), mapper, false);
+		final java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
+		while ((c = is3.read(bb)) != -1) {
+			bos.write(bb, 0, c);
+		}
+		final String out = bos.toString();
+		System.out.println(out.length() + " " + out.startsWith("${" + big + "${ph1}}") + " "
+				+ out.substring(out.length() - 7));
 	}
 }
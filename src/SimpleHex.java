@@ -1,8 +1,30 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 
 // Fast int/long/byte[] to Hex String (left-zero-padding)
 public class SimpleHex {
 	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+	// Two hex chars per byte value (index: b << 1)
+	private static final char[] HEX_PAIRS_LOWER = new char[512];
+	private static final char[] HEX_PAIRS_UPPER = new char[512];
+	// Nibble value per char (-1 = invalid)
+	private static final byte[] HEX_VALUES = new byte[256];
+
+	static {
+		final char[] upper = "0123456789ABCDEF".toCharArray();
+		for (int b = 0; b < 256; b++) {
+			HEX_PAIRS_LOWER[(b << 1) | 0] = HEX_CHARS[b >>> 4];
+			HEX_PAIRS_LOWER[(b << 1) | 1] = HEX_CHARS[b & 0xF];
+			HEX_PAIRS_UPPER[(b << 1) | 0] = upper[b >>> 4];
+			HEX_PAIRS_UPPER[(b << 1) | 1] = upper[b & 0xF];
+		}
+		java.util.Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			HEX_VALUES[HEX_CHARS[i]] = (byte) i;
+			HEX_VALUES[upper[i]] = (byte) i;
+		}
+	}
 
 	/**
 	 * Transform int to Hex String
@@ -12,9 +34,10 @@ public class SimpleHex {
 	 */
 	public static String intAsHex(final int input) {
 		final char[] sb = new char[8];
-		final int len = (sb.length - 1);
-		for (int i = 0; i <= len; i++) { // MSB
-			sb[i] = HEX_CHARS[((int) (input >>> ((len - i) << 2))) & 0xF];
+		for (int i = 0, j = 0; i < 4; i++) { // MSB
+			final int p = ((input >>> ((3 - i) << 3)) & 0xFF) << 1;
+			sb[j++] = HEX_PAIRS_LOWER[p];
+			sb[j++] = HEX_PAIRS_LOWER[p + 1];
 		}
 		return new String(sb);
 	}
@@ -27,9 +50,10 @@ public class SimpleHex {
 	 */
 	public static String longAsHex(final long input) {
 		final char[] sb = new char[16];
-		final int len = (sb.length - 1);
-		for (int i = 0; i <= len; i++) { // MSB
-			sb[i] = HEX_CHARS[((int) (input >>> ((len - i) << 2))) & 0xF];
+		for (int i = 0, j = 0; i < 8; i++) { // MSB
+			final int p = (((int) (input >>> ((7 - i) << 3))) & 0xFF) << 1;
+			sb[j++] = HEX_PAIRS_LOWER[p];
+			sb[j++] = HEX_PAIRS_LOWER[p + 1];
 		}
 		return new String(sb);
 	}
@@ -41,12 +65,7 @@ public class SimpleHex {
 	 * @return
 	 */
 	public static String bytesAsHex(final byte[] input) {
-		final char[] sb = new char[input.length << 1];
-		for (int j = 0; j < input.length; j++) {
-			sb[(j << 1) | 0] = HEX_CHARS[((int) (input[j] >>> (1 << 2))) & 0xF];
-			sb[(j << 1) | 1] = HEX_CHARS[((int) (input[j] >>> (0 << 2))) & 0xF];
-		}
-		return new String(sb);
+		return toHex(input, 0, input.length, false);
 	}
 
 	/**
@@ -61,22 +80,104 @@ public class SimpleHex {
 	public static final String toHex(final byte[] input, final int offset,
 			final int len, final boolean upper) {
 		final char[] hex = new char[len << 1];
-		for (int i = 0, j = 0; i < len; i++) {
-			final int bx = input[offset + i];
-			final int bh = ((bx >> 4) & 0xF);
-			final int bl = (bx & 0xF);
-			if ((bh >= 0) && (bh <= 9)) {
-				hex[j++] |= (bh + '0');
-			} else if ((bh >= 0xA) && (bh <= 0xF)) {
-				hex[j++] |= (bh - 0xA + (upper ? 'A' : 'a'));
-			}
-			if ((bl >= 0x0) && (bl <= 0x9)) {
-				hex[j++] |= (bl + '0');
-			} else if ((bl >= 0xA) && (bl <= 0xF)) {
-				hex[j++] |= (bl - 0xA + (upper ? 'A' : 'a'));
+		toHex(input, offset, len, hex, 0, upper);
+		return new String(hex);
+	}
+
+	/**
+	 * Transform byte array to Hex into caller-supplied char array (no allocation)
+	 * 
+	 * @param input
+	 * @param offset
+	 * @param len
+	 * @param out output (with room for len*2 chars)
+	 * @param outOffset
+	 * @param upper
+	 * @return number of chars written
+	 */
+	public static final int toHex(final byte[] input, final int offset, final int len, final char[] out,
+			final int outOffset, final boolean upper) {
+		final char[] pairs = (upper ? HEX_PAIRS_UPPER : HEX_PAIRS_LOWER);
+		for (int i = 0, j = outOffset; i < len; i++) {
+			final int p = (input[offset + i] & 0xFF) << 1;
+			out[j++] = pairs[p];
+			out[j++] = pairs[p + 1];
+		}
+		return (len << 1);
+	}
+
+	/**
+	 * Transform byte array to Hex (ASCII) into caller-supplied byte array (no allocation)
+	 * 
+	 * @param input
+	 * @param offset
+	 * @param len
+	 * @param out output (with room for len*2 bytes)
+	 * @param outOffset
+	 * @param upper
+	 * @return number of bytes written
+	 */
+	public static final int toHex(final byte[] input, final int offset, final int len, final byte[] out,
+			final int outOffset, final boolean upper) {
+		final char[] pairs = (upper ? HEX_PAIRS_UPPER : HEX_PAIRS_LOWER);
+		for (int i = 0, j = outOffset; i < len; i++) {
+			final int p = (input[offset + i] & 0xFF) << 1;
+			out[j++] = (byte) pairs[p];
+			out[j++] = (byte) pairs[p + 1];
+		}
+		return (len << 1);
+	}
+
+	/**
+	 * Append byte array as Hex to caller-supplied StringBuilder (no intermediate allocation)
+	 * 
+	 * @param sb
+	 * @param input
+	 * @param offset
+	 * @param len
+	 * @param upper
+	 * @return sb
+	 */
+	public static final StringBuilder appendHex(final StringBuilder sb, final byte[] input, final int offset,
+			final int len, final boolean upper) {
+		final char[] pairs = (upper ? HEX_PAIRS_UPPER : HEX_PAIRS_LOWER);
+		sb.ensureCapacity(sb.length() + (len << 1));
+		for (int i = 0; i < len; i++) {
+			final int p = (input[offset + i] & 0xFF) << 1;
+			sb.append(pairs[p]).append(pairs[p + 1]);
+		}
+		return sb;
+	}
+
+	/**
+	 * Transform bytes from position to limit of input to Hex (ASCII) into output (no allocation). Upon return,
+	 * input position will be equal to its limit and output position is advanced by the number of bytes
+	 * written.
+	 * 
+	 * @param input (heap or direct)
+	 * @param output (heap or direct, with room for remaining*2 bytes)
+	 * @param upper
+	 * @return number of bytes written
+	 * @throws BufferOverflowException if output has not room enough
+	 */
+	public static final int toHex(final ByteBuffer input, final ByteBuffer output, final boolean upper) {
+		final int len = input.remaining();
+		if (output.remaining() < (len << 1))
+			throw new BufferOverflowException();
+		if (input.hasArray() && output.hasArray()) {
+			toHex(input.array(), input.arrayOffset() + input.position(), len, //
+					output.array(), output.arrayOffset() + output.position(), upper);
+		} else {
+			final char[] pairs = (upper ? HEX_PAIRS_UPPER : HEX_PAIRS_LOWER);
+			for (int i = input.position(), j = output.position(), end = input.limit(); i < end; i++) {
+				final int p = (input.get(i) & 0xFF) << 1;
+				output.put(j++, (byte) pairs[p]);
+				output.put(j++, (byte) pairs[p + 1]);
 			}
 		}
-		return new String(hex);
+		input.position(input.limit());
+		output.position(output.position() + (len << 1));
+		return (len << 1);
 	}
 
 	/**
@@ -88,32 +189,61 @@ public class SimpleHex {
 	 */
 	public static final byte[] fromHex(final String hex) throws ParseException {
 		final int len = hex.length();
-		final byte[] out = new byte[len / 2];
-		for (int i = 0, j = 0; i < len; i++) {
-			char c = hex.charAt(i);
-			int v = 0;
-			if ((c >= '0') && (c <= '9')) {
-				v = (c - '0');
-			} else if ((c >= 'A') && (c <= 'F')) {
-				v = (c - 'A') + 0xA;
-			} else if ((c >= 'a') && (c <= 'f')) {
-				v = (c - 'a') + 0xA;
-			} else {
-				throw new ParseException("Invalid char", j);
-			}
-			if ((i & 1) == 0) {
-				out[j] |= (v << 4);
-			} else {
-				out[j++] |= v;
-			}
-		}
+		if ((len & 1) != 0)
+			throw new ParseException("Invalid length", len);
+		final byte[] out = new byte[len >> 1];
+		fromHex(hex, 0, len, out, 0);
 		return out;
 	}
 
+	/**
+	 * Transform Hex chars to caller-supplied byte array (no allocation)
+	 * 
+	 * @param hex
+	 * @param offset
+	 * @param len number of chars (even)
+	 * @param out output (with room for len/2 bytes)
+	 * @param outOffset
+	 * @return number of bytes written
+	 * @throws ParseException
+	 */
+	public static final int fromHex(final CharSequence hex, final int offset, final int len, final byte[] out,
+			final int outOffset) throws ParseException {
+		if ((len & 1) != 0)
+			throw new ParseException("Invalid length", offset + len);
+		final byte[] values = HEX_VALUES;
+		for (int i = 0, j = outOffset; i < len; i += 2) {
+			final char c1 = hex.charAt(offset + i);
+			final char c2 = hex.charAt(offset + i + 1);
+			// chars out of table range are mapped to index 0 (invalid)
+			final int v1 = values[(c1 < 256) ? c1 : 0];
+			final int v2 = values[(c2 < 256) ? c2 : 0];
+			if ((v1 | v2) < 0)
+				throw new ParseException("Invalid char", offset + ((v1 < 0) ? i : (i + 1)));
+			out[j++] = (byte) ((v1 << 4) | v2);
+		}
+		return (len >> 1);
+	}
+
 	public static void main(String[] args) {
 		String test = "hello world";
 		System.out.println(toHex(test.getBytes(), 0, test.length(), true));
 		System.out.println(toHex(test.getBytes(), 6, 2, true));
 		System.out.println(bytesAsHex(test.getBytes()));
+		System.out.println(intAsHex(0xCAFE) + " " + longAsHex(-2L));
+		final StringBuilder sb = new StringBuilder("id=");
+		System.out.println(appendHex(sb, test.getBytes(), 0, 5, false));
+		final ByteBuffer out = ByteBuffer.allocateDirect(test.length() << 1);
+		toHex(ByteBuffer.wrap(test.getBytes()), out, true);
+		out.flip();
+		final byte[] hex = new byte[out.remaining()];
+		out.get(hex);
+		System.out.println(new String(hex));
+		try {
+			System.out.println(new String(fromHex(new String(hex))));
+			fromHex("0g");
+		} catch (ParseException e) {
+			System.out.println(e + " at " + e.getErrorOffset());
+		}
 	}
 }